@@ -0,0 +1,164 @@
+package com.google.dart.compiler.benchmark;
+
+import com.google.dart.compiler.backend.js.ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic ASTs of the shapes translators produce a lot of.
+ */
+public final class AstGenerators {
+    private AstGenerators() {
+    }
+
+    public static JsNode create(String shape, int size) {
+        if (shape.equals("wide")) {
+            return wideBlock(size);
+        }
+        else if (shape.equals("deep")) {
+            return deepChains(size);
+        }
+        else if (shape.equals("strings")) {
+            return stringLiterals(size, 4096);
+        }
+        else if (shape.equals("objects")) {
+            return objectLiterals(size, 16);
+        }
+        throw new IllegalArgumentException("Unknown shape: " + shape);
+    }
+
+    /**
+     * Many small top-level functions.
+     */
+    public static JsGlobalBlock wideBlock(int functionCount) {
+        JsScope rootScope = new JsScope(null);
+        List<JsNode> statements = new ArrayList<JsNode>(functionCount);
+        for (int i = 0; i < functionCount; i++) {
+            JsFunction function = new JsFunction(rootScope, new JsBlock());
+            function.setName("function" + i);
+            List<JsParameter> parameters = new ArrayList<JsParameter>();
+            parameters.add(new JsParameter("a"));
+            parameters.add(new JsParameter("b"));
+            function.setParameters(parameters);
+
+            JsNameRef a = new JsNameRef("a");
+            JsNameRef b = new JsNameRef("b");
+            function.add(new JsVars(new JsVar("tmp", new JsBinaryOperation(JsBinaryOperator.MUL, a, new JsNumberLiteral(i)))));
+            function.add(new JsIf(new JsBinaryOperation(JsBinaryOperator.GT, new JsNameRef("tmp"), b),
+                                  new JsBlock(new JsReturn(new JsInvocation(new JsNameRef("max", "Math"), a, b))),
+                                  new JsBlock(new JsReturn(new JsNameRef("tmp")))));
+            statements.add(function);
+        }
+        return new JsGlobalBlock(statements);
+    }
+
+    /**
+     * Long left-nested string concatenations and qualified call chains.
+     */
+    public static JsGlobalBlock deepChains(int depth) {
+        JsExpression concatenation = new JsStringLiteral("start");
+        JsExpression calls = new JsNameRef("builder");
+        for (int i = 0; i < depth; i++) {
+            concatenation = new JsBinaryOperation(JsBinaryOperator.ADD, concatenation, new JsNameRef("v" + (i & 15)));
+            calls = new JsInvocation(new JsNameRef("append", calls), new JsNumberLiteral(i));
+        }
+
+        List<JsNode> statements = new ArrayList<JsNode>();
+        statements.add(new JsVars(new JsVar("s", concatenation)));
+        statements.add(calls);
+        return new JsGlobalBlock(statements);
+    }
+
+    /**
+     * Expression statement starting with an object literal at the bottom of a left spine of calls, property and
+     * array accesses and additions, so the first-expression check walks the whole spine.
+     */
+    public static JsExpression objectLiteralSpine(int depth) {
+        JsExpression expression = new JsObjectLiteral();
+        for (int i = 0; i < depth; i++) {
+            switch (i & 3) {
+                case 0:
+                    expression = new JsNameRef("p" + (i & 15), expression);
+                    break;
+                case 1:
+                    expression = new JsArrayAccess(expression, new JsNumberLiteral(i));
+                    break;
+                case 2:
+                    expression = new JsInvocation(expression, new JsNameRef("a"));
+                    break;
+                default:
+                    expression = new JsBinaryOperation(JsBinaryOperator.ADD, expression, new JsNameRef("b"));
+                    break;
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Constructor expression of property and array accesses with a call at the bottom, so the check for parentheses
+     * around a {@code new} target walks the whole spine.
+     */
+    public static JsExpression constructorSpine(int depth) {
+        JsExpression expression = new JsInvocation(new JsNameRef("factory"));
+        for (int i = 0; i < depth; i++) {
+            if ((i & 1) == 0) {
+                expression = new JsNameRef("p" + (i & 15), expression);
+            }
+            else {
+                expression = new JsArrayAccess(expression, new JsNumberLiteral(i));
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Variables initialized with large string literals that need escaping.
+     */
+    public static JsGlobalBlock stringLiterals(int count, int length) {
+        String chunk = "Lorem ipsum dolor sit amet, \"consectetur\" adipiscing elit, sed do eiusmod tempor\n"
+                       + "incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud\t\u00e9\u4e2d\n";
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(chunk);
+        }
+        builder.setLength(length);
+        String value = builder.toString();
+
+        List<JsNode> statements = new ArrayList<JsNode>(count);
+        for (int i = 0; i < count; i++) {
+            statements.add(new JsVars(new JsVar("text" + i, JsStringLiteral.unescaped(value))));
+        }
+        return new JsGlobalBlock(statements);
+    }
+
+    /**
+     * Assignments of object literals, like metadata and vtables.
+     */
+    public static JsGlobalBlock objectLiterals(int count, int propertyCount) {
+        List<JsNode> statements = new ArrayList<JsNode>(count);
+        for (int i = 0; i < count; i++) {
+            JsObjectLiteral literal = new JsObjectLiteral(true);
+            for (int j = 0; j < propertyCount; j++) {
+                JsExpression value = (j & 1) == 0 ? new JsNumberLiteral(j) : new JsStringLiteral("value" + j);
+                literal.getPropertyInitializers().add(new JsPropertyInitializer(new JsNameRef("property" + j), value));
+            }
+            statements.add(new JsBinaryOperation(JsBinaryOperator.ASG, new JsNameRef("metadata" + i, "_"), literal));
+        }
+        return new JsGlobalBlock(statements);
+    }
+
+    /**
+     * Chain of nested scopes, each declaring a few names.
+     */
+    public static JsScope nestedScopes(int depth, int namesPerScope) {
+        JsScope scope = new JsScope(null);
+        for (int i = 0; i < depth; i++) {
+            scope = scope.innerScope();
+            for (int j = 0; j < namesPerScope; j++) {
+                scope.declareName("name" + j);
+            }
+        }
+        return scope;
+    }
+}
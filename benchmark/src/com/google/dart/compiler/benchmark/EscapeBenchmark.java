@@ -0,0 +1,65 @@
+package com.google.dart.compiler.benchmark;
+
+import com.google.dart.compiler.backend.js.ast.JsStringLiteral;
+import com.google.dart.compiler.util.TextOutputImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Printing of a string literal that needs escaping, compared with the escaper used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapeBenchmark {
+    @Param({"64", "4096", "65536"})
+    public int length;
+
+    @Param({"ascii", "quotes", "unicode"})
+    public String content;
+
+    private String value;
+    private JsStringLiteral literal;
+
+    @Setup
+    public void setUp() {
+        String chunk;
+        if (content.equals("ascii")) {
+            chunk = "<div class=\"item\">{{title}}</div>\n";
+        }
+        else if (content.equals("quotes")) {
+            chunk = "it's \"quoted\" \\ 'twice'\t";
+        }
+        else if (content.equals("unicode")) {
+            // "Hello, world!" in Russian and Chinese
+            chunk = "\u041f\u0440\u0438\u0432\u0435\u0442, \u043c\u0438\u0440! \u4f60\u597d\uff0c\u4e16\u754c ";
+        }
+        else {
+            throw new IllegalArgumentException("Unknown content: " + content);
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(chunk);
+        }
+        builder.setLength(length);
+        value = builder.toString();
+        literal = JsStringLiteral.unescaped(value);
+    }
+
+    @Benchmark
+    public int print() {
+        TextOutputImpl out = new TextOutputImpl(true);
+        new FullJsPrinter(out).accept(literal);
+        return out.getPosition();
+    }
+
+    @Benchmark
+    public int legacy() {
+        return LegacyStringEscaper.javaScriptString(value, new StringBuilder(), false).length();
+    }
+}
@@ -0,0 +1,24 @@
+package com.google.dart.compiler.benchmark;
+
+import com.google.dart.compiler.backend.js.JsToStringGenerationVisitor;
+import com.google.dart.compiler.backend.js.ast.JsBlock;
+import com.google.dart.compiler.util.TextOutput;
+
+/**
+ * Prints blocks completely, as code generators do, instead of the truncated debug form.
+ */
+public class FullJsPrinter extends JsToStringGenerationVisitor {
+    public FullJsPrinter(TextOutput out) {
+        super(out);
+    }
+
+    @Override
+    public void visitBlock(JsBlock block) {
+        printBlock(block, false);
+    }
+
+    @Override
+    protected JsToStringGenerationVisitor createStatementPrinter(TextOutput out) {
+        return new FullJsPrinter(out);
+    }
+}
@@ -0,0 +1,115 @@
+package com.google.dart.compiler.benchmark;
+
+/**
+ * String literal escaping as JsToStringGenerationVisitor did it before table-driven escaping, the baseline of {@link EscapeBenchmark}.
+ */
+final class LegacyStringEscaper {
+    private static final char[] HEX_DIGITS = {
+                    '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    private LegacyStringEscaper() {
+    }
+
+    static CharSequence javaScriptString(CharSequence chars, StringBuilder result, boolean forceDoubleQuote) {
+        final int n = chars.length();
+        int quoteCount = 0;
+        int aposCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            switch (chars.charAt(i)) {
+                case '"':
+                    ++quoteCount;
+                    break;
+                case '\'':
+                    ++aposCount;
+                    break;
+            }
+        }
+
+        char quoteChar = (quoteCount < aposCount || forceDoubleQuote) ? '"' : '\'';
+        result.ensureCapacity(result.length() + chars.length() + 2);
+        result.append(quoteChar);
+        for (int i = 0; i < n; i++) {
+            char c = chars.charAt(i);
+
+            if (' ' <= c && c <= '~' && c != quoteChar && c != '\\') {
+                // an ordinary print character (like C isprint())
+                result.append(c);
+                continue;
+            }
+
+            int escape = -1;
+            switch (c) {
+                case '\b':
+                    escape = 'b';
+                    break;
+                case '\f':
+                    escape = 'f';
+                    break;
+                case '\n':
+                    escape = 'n';
+                    break;
+                case '\r':
+                    escape = 'r';
+                    break;
+                case '\t':
+                    escape = 't';
+                    break;
+                case '"':
+                    escape = '"';
+                    break; // only reach here if == quoteChar
+                case '\'':
+                    escape = '\'';
+                    break; // only reach here if == quoteChar
+                case '\\':
+                    escape = '\\';
+                    break;
+            }
+
+            if (escape >= 0) {
+                // an \escaped sort of character
+                result.append('\\');
+                result.append((char) escape);
+            }
+            else {
+                        /*
+                        * Emit characters from 0 to 31 that don't have a single character
+                        * escape sequence in octal where possible. This saves one or two
+                        * characters compared to the hexadecimal format '\xXX'.
+                        *
+                        * These short octal sequences may only be used at the end of the string
+                        * or where the following character is a non-digit. Otherwise, the
+                        * following character would be incorrectly interpreted as belonging to
+                        * the sequence.
+                        */
+                if (c < ' ' && (i == n - 1 || chars.charAt(i + 1) < '0' || chars.charAt(i + 1) > '9')) {
+                    result.append('\\');
+                    if (c > 0x7) {
+                        result.append((char) ('0' + (0x7 & (c >> 3))));
+                    }
+                    result.append((char) ('0' + (0x7 & c)));
+                }
+                else {
+                    int hexSize;
+                    if (c < 256) {
+                        // 2-digit hex
+                        result.append("\\x");
+                        hexSize = 2;
+                    }
+                    else {
+                        // Unicode.
+                        result.append("\\u");
+                        hexSize = 4;
+                    }
+                    // append hexadecimal form of ch left-padded with 0
+                    for (int shift = (hexSize - 1) * 4; shift >= 0; shift -= 4) {
+                        int digit = 0xf & (c >> shift);
+                        result.append(HEX_DIGITS[digit]);
+                    }
+                }
+            }
+        }
+        result.append(quoteChar);
+        return result;
+    }
+}
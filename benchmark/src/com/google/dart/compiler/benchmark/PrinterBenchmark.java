@@ -0,0 +1,62 @@
+package com.google.dart.compiler.benchmark;
+
+import com.google.dart.compiler.backend.js.ast.JsNode;
+import com.google.dart.compiler.util.TextOutputImpl;
+import com.google.dart.compiler.util.TextOutputPool;
+import com.google.dart.compiler.util.Utf8TextOutput;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrinterBenchmark {
+    @Param({"wide", "deep", "strings", "objects"})
+    public String shape;
+
+    @Param({"1000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean compact;
+
+    private JsNode node;
+    private Utf8TextOutput utf8Output;
+    private final TextOutputPool pool = new TextOutputPool(4, 64 * 1024 * 1024);
+
+    @Setup
+    public void setUp() {
+        node = AstGenerators.create(shape, size);
+        utf8Output = new Utf8TextOutput(compact);
+    }
+
+    @Benchmark
+    public int print() {
+        TextOutputImpl out = new TextOutputImpl(compact);
+        new FullJsPrinter(out).accept(node);
+        return out.getPosition();
+    }
+
+    @Benchmark
+    public int printPooled() {
+        TextOutputImpl out = pool.acquire(compact);
+        try {
+            new FullJsPrinter(out).accept(node);
+            return out.getPosition();
+        }
+        finally {
+            pool.release(out);
+        }
+    }
+
+    @Benchmark
+    public int printUtf8() {
+        utf8Output.reset();
+        new FullJsPrinter(utf8Output).accept(node);
+        return utf8Output.getByteCount();
+    }
+}
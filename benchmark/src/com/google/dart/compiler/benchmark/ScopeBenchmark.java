@@ -0,0 +1,61 @@
+package com.google.dart.compiler.benchmark;
+
+import com.google.dart.compiler.backend.js.ast.JsScope;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScopeBenchmark {
+    @Param({"100", "1000"})
+    public int count;
+
+    private JsScope nestedScope;
+
+    @Setup
+    public void setUp() {
+        nestedScope = AstGenerators.nestedScopes(64, 8);
+    }
+
+    /**
+     * Same suggested name declared many times, as for temporaries of inlined code.
+     */
+    @Benchmark
+    public String declareFreshName() {
+        JsScope scope = new JsScope(null);
+        String name = null;
+        for (int i = 0; i < count; i++) {
+            name = scope.declareFreshName("tmp");
+        }
+        return name;
+    }
+
+    @Benchmark
+    public String declareTemporary() {
+        JsScope scope = new JsScope(null);
+        String name = null;
+        for (int i = 0; i < count; i++) {
+            name = scope.declareTemporary();
+        }
+        return name;
+    }
+
+    /**
+     * Lookup of names declared in outer scopes.
+     */
+    @Benchmark
+    public int findNameInNestedScopes() {
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (nestedScope.findName((i & 1) == 0 ? "name" + (i & 7) : "missing") != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,42 @@
+package com.google.dart.compiler.benchmark;
+
+import com.google.dart.compiler.backend.js.JsConstructExpressionVisitor;
+import com.google.dart.compiler.backend.js.JsFirstExpressionVisitor;
+import com.google.dart.compiler.backend.js.ast.JsExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks of the left spine the printer makes for every expression statement and {@code new} target, time per check
+ * should grow linearly with the depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpineBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int depth;
+
+    private JsExpression objectLiteralSpine;
+    private JsExpression constructorSpine;
+
+    @Setup
+    public void setUp() {
+        objectLiteralSpine = AstGenerators.objectLiteralSpine(depth);
+        constructorSpine = AstGenerators.constructorSpine(depth);
+    }
+
+    @Benchmark
+    public boolean firstExpression() {
+        return JsFirstExpressionVisitor.exec(objectLiteralSpine);
+    }
+
+    @Benchmark
+    public boolean constructExpression() {
+        return JsConstructExpressionVisitor.exec(constructorSpine);
+    }
+}
@@ -0,0 +1,59 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects variables declared by code, they are hoisted, so removing the code mustn't remove their declarations,
+ * and whether the code declares a named function.
+ */
+final class HoistedDeclarationCollector extends RecursiveJsVisitor {
+    final Set<String> names = new LinkedHashSet<String>();
+    boolean declaresFunction;
+
+    HoistedDeclarationCollector() {
+        super(true);
+    }
+
+    @Override
+    public void visitFunction(JsFunction x) {
+        // a function declaration in a block is hoisted differently by different engines
+        if (x.getName() != null) {
+            declaresFunction = true;
+        }
+    }
+
+    @Override
+    public void visit(JsVar x) {
+        names.add(x.getName());
+        super.visit(x);
+    }
+
+    @Override
+    public void visitForIn(JsForIn x) {
+        if (x.getIterVarName() != null) {
+            names.add(x.getIterVarName());
+        }
+        super.visitForIn(x);
+    }
+
+    /**
+     * Returns declarations of the collected variables without initializers, null if there are none.
+     */
+    @Nullable
+    JsVars createVars(Object source) {
+        if (names.isEmpty()) {
+            return null;
+        }
+
+        JsVars vars = new JsVars();
+        for (String name : names) {
+            vars.add(new JsVar(name));
+        }
+        vars.setSource(source);
+        return vars;
+    }
+}
@@ -0,0 +1,92 @@
+package com.google.dart.compiler.backend.js;
+
+/**
+ * Binary format of a serialized AST, written by {@link JsAstWriter} and read by {@link JsAstReader}.
+ * <pre>
+ * magic        int, big-endian
+ * version      varint
+ * flags        varint, see HAS_SOURCE_INFO_SECTION and HAS_INDEX
+ * strings      varint count, then each string as a varint length in bytes and chars in modified UTF-8
+ * source infos varint count, then each as big-endian ints source name index + 1 (0 for no source), line, column,
+ *              start and length, only if the section is present
+ * index        varint length in bytes, varint count of top-level statements, then each as a varint offset from
+ *              the previous statement (the first one from the start of the body), a varint count of declared names
+ *              and their string table indices, only if the root node is a block
+ * body         varint length in bytes, then the root node
+ * </pre>
+ * Source infos have a fixed size and strings are prefixed by their length in bytes, so both are decoded on demand
+ * when top-level statements are read separately by {@link JsAstLoader}.
+ * A node is a tag byte, the index of its source info as a varint if the tag has {@link #HAS_SOURCE} set,
+ * and the node data: string table indices, counts and enum ordinals as varints, followed by children in pre-order.
+ * An absent child is written as {@link #NULL} tag.
+ */
+final class JsAstFormat {
+    static final int MAGIC = 0x4a534153;
+    static final int VERSION = 2;
+
+    static final int HAS_SOURCE_INFO_SECTION = 1;
+    static final int HAS_INDEX = 2;
+
+    static final int SOURCE_INFO_SIZE = 20;
+
+    static final int HAS_SOURCE = 0x80;
+    static final int KIND_MASK = 0x7f;
+
+    static final int NULL = 0;
+    static final int ARRAY_ACCESS = 1;
+    static final int ARRAY = 2;
+    static final int BINARY = 3;
+    static final int BLOCK = 4;
+    static final int GLOBAL_BLOCK = 5;
+    static final int TRUE = 6;
+    static final int FALSE = 7;
+    static final int BREAK = 8;
+    static final int CASE = 9;
+    static final int CATCH = 10;
+    static final int CONDITIONAL = 11;
+    static final int CONTINUE = 12;
+    static final int DEBUGGER = 13;
+    static final int DEFAULT = 14;
+    static final int DO_WHILE = 15;
+    static final int EMPTY = 16;
+    static final int FOR = 17;
+    static final int FOR_IN = 18;
+    static final int FUNCTION = 19;
+    static final int IF = 20;
+    static final int INVOCATION = 21;
+    static final int LABEL = 22;
+    static final int NAME_REF = 23;
+    static final int NEW = 24;
+    static final int NULL_LITERAL = 25;
+    static final int INT = 26;
+    static final int LONG = 27;
+    static final int DOUBLE = 28;
+    static final int FLOAT = 29;
+    static final int SHORT = 30;
+    static final int BYTE = 31;
+    static final int OBJECT_LITERAL = 32;
+    static final int PARAMETER = 33;
+    static final int POSTFIX = 34;
+    static final int PREFIX = 35;
+    static final int PROPERTY_INITIALIZER = 36;
+    static final int REGEXP = 37;
+    static final int RETURN = 38;
+    static final int STRING = 39;
+    static final int SWITCH = 40;
+    static final int THIS = 41;
+    static final int THROW = 42;
+    static final int TRY = 43;
+    static final int VAR = 44;
+    static final int VARS = 45;
+    static final int WHILE = 46;
+    static final int DOC_COMMENT = 47;
+    // name reference without qualifier, the most frequent node, so the null qualifier isn't written
+    static final int NAME = 48;
+
+    // value kinds of doc comment tags
+    static final int TAG_STRING = 0;
+    static final int TAG_NODE = 1;
+
+    private JsAstFormat() {
+    }
+}
@@ -0,0 +1,102 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.JsBlock;
+import com.google.dart.compiler.backend.js.ast.JsNode;
+import com.google.dart.compiler.backend.js.ast.JsScope;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/**
+ * Reads top-level statements of a program serialized by {@link JsAstWriter} on first access, using the index
+ * of their offsets, so only the header is decoded on load and the heap holds only the statements that are used.
+ * <p/>
+ * A statement is read once, the same node is returned after that. The serialized root must be a block.
+ * Not thread-safe.
+ */
+public final class JsAstLoader {
+    private final JsAstReader reader;
+    // the last element is the end of the body
+    private final int[] positions;
+    private final JsNode[] statements;
+    private Map<String, Integer> declarations;
+
+    /**
+     * @param buffer the serialized AST starting at the position of the buffer, the buffer itself isn't modified
+     */
+    public JsAstLoader(ByteBuffer buffer, @Nullable JsScope rootScope, @Nullable JsAstReader.SourceResolver sourceResolver) {
+        this(buffer, rootScope, sourceResolver, null);
+    }
+
+    /**
+     * @param leaves if not null, literals without source info are shared through it, see {@link JsLeafFactory}
+     */
+    public JsAstLoader(ByteBuffer buffer, @Nullable JsScope rootScope, @Nullable JsAstReader.SourceResolver sourceResolver,
+            @Nullable JsLeafFactory leaves) {
+        reader = new JsAstReader(buffer.duplicate(), rootScope, sourceResolver, leaves);
+        positions = reader.readStatementPositions();
+        statements = new JsNode[positions.length - 1];
+    }
+
+    /**
+     * Maps the file to memory, its pages are loaded by the OS when statements are read.
+     */
+    public static JsAstLoader map(File file, @Nullable JsScope rootScope, @Nullable JsAstReader.SourceResolver sourceResolver)
+            throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            // the mapping stays valid after the channel is closed
+            return new JsAstLoader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), rootScope, sourceResolver);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    public int getStatementCount() {
+        return statements.length;
+    }
+
+    public JsNode getStatement(int index) {
+        JsNode statement = statements[index];
+        if (statement == null) {
+            statement = reader.readNode(positions[index], positions[index + 1]);
+            statements[index] = statement;
+        }
+        return statement;
+    }
+
+    public boolean isLoaded(int index) {
+        return statements[index] != null;
+    }
+
+    /**
+     * Returns the first top-level function or var statement declaring the name.
+     */
+    @Nullable
+    public JsNode getDeclaration(String name) {
+        if (declarations == null) {
+            declarations = reader.readDeclarations();
+        }
+        Integer index = declarations.get(name);
+        return index == null ? null : getStatement(index);
+    }
+
+    /**
+     * Reads all statements that aren't loaded yet, the returned block contains the same nodes as returned
+     * by {@link #getStatement(int)}.
+     */
+    public JsBlock load() {
+        JsBlock block = reader.readRootBlock();
+        for (int i = 0; i < statements.length; i++) {
+            block.getStatements().add(getStatement(i));
+        }
+        return block;
+    }
+}
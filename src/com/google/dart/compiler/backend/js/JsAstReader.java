@@ -0,0 +1,566 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.Source;
+import com.google.dart.compiler.backend.js.ast.*;
+import com.google.dart.compiler.common.SourceInfo;
+import com.google.dart.compiler.common.SourceInfoImpl;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads an AST written by {@link JsAstWriter}, nodes are decoded in a single sequential pass, strings and source infos
+ * are decoded on first use. If a {@link JsLeafFactory} is given, number and string literals without source info are shared
+ * through it, otherwise each literal is its own node.
+ * <p/>
+ * Functions get scopes nested in the given root scope. Sources of source infos are looked up by name
+ * with the given resolver, without a resolver source infos have no source.
+ */
+public final class JsAstReader {
+    public interface SourceResolver {
+        @Nullable
+        Source resolve(String name);
+    }
+
+    private static final JsBinaryOperator[] BINARY_OPERATORS = JsBinaryOperator.values();
+    private static final JsUnaryOperator[] UNARY_OPERATORS = JsUnaryOperator.values();
+
+    private final ByteBuffer buffer;
+    private final int[] stringPositions;
+    private final String[] strings;
+    @Nullable
+    private final SourceResolver sourceResolver;
+    private final int sourceInfoPosition;
+    private final SourceInfo[] sourceInfos;
+    private final int indexPosition;
+    private final int bodyPosition;
+    private final int end;
+
+    // literals without source info are shared if not null
+    @Nullable
+    private final JsLeafFactory leaves;
+
+    private JsScope scope;
+    private final List<JsBinaryOperation> binaryChain = new ArrayList<JsBinaryOperation>();
+
+    // only the header is read, strings and source infos are decoded when they are used
+    JsAstReader(ByteBuffer buffer, @Nullable JsScope rootScope, @Nullable SourceResolver sourceResolver,
+            @Nullable JsLeafFactory leaves) {
+        this.buffer = buffer;
+        this.sourceResolver = sourceResolver;
+        this.leaves = leaves;
+        scope = rootScope;
+
+        if (readInt() != JsAstFormat.MAGIC) {
+            throw new IllegalArgumentException("Not a serialized AST");
+        }
+        int version = readVarInt();
+        if (version != JsAstFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported version of serialized AST: " + version);
+        }
+        int flags = readVarInt();
+
+        int stringCount = readVarInt();
+        stringPositions = new int[stringCount];
+        strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            stringPositions[i] = buffer.position();
+            skip(readVarInt());
+        }
+
+        if ((flags & JsAstFormat.HAS_SOURCE_INFO_SECTION) != 0) {
+            sourceInfos = new SourceInfo[readVarInt()];
+            sourceInfoPosition = buffer.position();
+            skip(sourceInfos.length * JsAstFormat.SOURCE_INFO_SIZE);
+        }
+        else {
+            sourceInfos = null;
+            sourceInfoPosition = -1;
+        }
+
+        if ((flags & JsAstFormat.HAS_INDEX) != 0) {
+            int length = readVarInt();
+            indexPosition = buffer.position();
+            skip(length);
+        }
+        else {
+            indexPosition = -1;
+        }
+
+        int length = readVarInt();
+        bodyPosition = buffer.position();
+        end = bodyPosition + length;
+    }
+
+    public static JsNode read(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes), null, null);
+    }
+
+    /**
+     * Reads the AST starting at the position of the buffer, the position is moved after it.
+     */
+    public static JsNode read(ByteBuffer buffer, @Nullable JsScope rootScope, @Nullable SourceResolver sourceResolver) {
+        return read(buffer, rootScope, sourceResolver, null);
+    }
+
+    /**
+     * @param leaves if not null, literals without source info are shared through it, their source can't be set then
+     */
+    public static JsNode read(ByteBuffer buffer, @Nullable JsScope rootScope, @Nullable SourceResolver sourceResolver,
+            @Nullable JsLeafFactory leaves) {
+        JsAstReader reader = new JsAstReader(buffer, rootScope, sourceResolver, leaves);
+        return reader.readNode(reader.bodyPosition, reader.end);
+    }
+
+    // reads the node that must end exactly at the given position
+    JsNode readNode(int position, int end) {
+        buffer.position(position);
+        JsNode node = readNode();
+        if (node == null || buffer.position() != end) {
+            throw new IllegalArgumentException("Malformed serialized AST");
+        }
+        return node;
+    }
+
+    /**
+     * Absolute positions of top-level statements, the last element is the end of the body.
+     */
+    int[] readStatementPositions() {
+        buffer.position(checkIndex());
+        int[] positions = new int[readVarInt() + 1];
+        int position = bodyPosition;
+        for (int i = 0; i < positions.length - 1; i++) {
+            position += readVarInt();
+            positions[i] = position;
+            skipVarInts(readVarInt());
+        }
+        positions[positions.length - 1] = end;
+        return positions;
+    }
+
+    /**
+     * Names declared by top-level functions and vars mapped to the index of the first statement declaring them.
+     */
+    Map<String, Integer> readDeclarations() {
+        buffer.position(checkIndex());
+        int count = readVarInt();
+        Map<String, Integer> declarations = new THashMap<String, Integer>();
+        for (int i = 0; i < count; i++) {
+            readVarInt();
+            for (int j = readVarInt(); j > 0; j--) {
+                String name = readString();
+                if (!declarations.containsKey(name)) {
+                    declarations.put(name, i);
+                }
+            }
+        }
+        return declarations;
+    }
+
+    /**
+     * Root block without statements.
+     */
+    JsBlock readRootBlock() {
+        checkIndex();
+        buffer.position(bodyPosition);
+        int tag = buffer.get() & 0xff;
+        Object source = readSource(tag);
+        JsBlock block = (tag & JsAstFormat.KIND_MASK) == JsAstFormat.GLOBAL_BLOCK
+                        ? new JsGlobalBlock(new ArrayList<JsNode>())
+                        : new JsBlock();
+        if (source != null) {
+            block.setSource(source);
+        }
+        return block;
+    }
+
+    private int checkIndex() {
+        if (indexPosition == -1) {
+            throw new IllegalArgumentException("Serialized AST has no index of top-level statements, its root isn't a block");
+        }
+        return indexPosition;
+    }
+
+    private void skip(int length) {
+        buffer.position(buffer.position() + length);
+    }
+
+    private void skipVarInts(int count) {
+        for (int i = 0; i < count; i++) {
+            readVarInt();
+        }
+    }
+    // big-endian whatever the byte order of the buffer is
+    private int readInt() {
+        return ((buffer.get() & 0xff) << 24) | ((buffer.get() & 0xff) << 16) | ((buffer.get() & 0xff) << 8) | (buffer.get() & 0xff);
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private int readZigZagInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readZigZagLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String getString(int index) {
+        String string = strings[index];
+        if (string == null) {
+            string = decodeString(stringPositions[index]);
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    private String decodeString(int position) {
+        int current = buffer.position();
+        buffer.position(position);
+        int length = readVarInt();
+        // no more chars than bytes
+        char[] chars = new char[length];
+        int count = 0;
+        for (int end = buffer.position() + length; buffer.position() < end; ) {
+            int b = buffer.get() & 0xff;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            }
+            else if (b < 0xe0) {
+                chars[count++] = (char) (((b & 0x1f) << 6) | (buffer.get() & 0x3f));
+            }
+            else {
+                chars[count++] = (char) (((b & 0x0f) << 12) | ((buffer.get() & 0x3f) << 6) | (buffer.get() & 0x3f));
+            }
+        }
+        buffer.position(current);
+        return new String(chars, 0, count);
+    }
+
+    private String readString() {
+        return getString(readVarInt());
+    }
+
+    @Nullable
+    private String readNullableString() {
+        int index = readVarInt();
+        return index == 0 ? null : getString(index - 1);
+    }
+
+    @Nullable
+    private Object readSource(int tag) {
+        if ((tag & JsAstFormat.HAS_SOURCE) == 0) {
+            return null;
+        }
+        if (sourceInfos == null) {
+            throw new IllegalArgumentException("Malformed serialized AST: source info section is missing");
+        }
+
+        int index = readVarInt();
+        SourceInfo info = sourceInfos[index];
+        if (info == null) {
+            info = decodeSourceInfo(sourceInfoPosition + index * JsAstFormat.SOURCE_INFO_SIZE);
+            sourceInfos[index] = info;
+        }
+        return info;
+    }
+
+    private SourceInfo decodeSourceInfo(int position) {
+        int current = buffer.position();
+        buffer.position(position);
+        int sourceName = readInt();
+        Source source = sourceName == 0 || sourceResolver == null ? null : sourceResolver.resolve(getString(sourceName - 1));
+        SourceInfo info = new SourceInfoImpl(source, readInt(), readInt(), readInt(), readInt());
+        buffer.position(current);
+        return info;
+    }
+
+    private int peekKind() {
+        return buffer.get(buffer.position()) & JsAstFormat.KIND_MASK;
+    }
+
+    @Nullable
+    private JsNode readNode() {
+        int tag = buffer.get() & 0xff;
+        int kind = tag & JsAstFormat.KIND_MASK;
+        if (kind == JsAstFormat.NULL) {
+            return null;
+        }
+
+        Object source = readSource(tag);
+        JsNode node = readNode(kind, source == null && leaves != null);
+        if (source != null) {
+            node.setSource(source);
+        }
+        return node;
+    }
+
+    private JsExpression readExpression() {
+        return (JsExpression) readNode();
+    }
+
+    private JsBlock readBlock() {
+        return (JsBlock) readNode();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends JsNode> List<T> readList() {
+        int count = readVarInt();
+        List<T> nodes = new ArrayList<T>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add((T) readNode());
+        }
+        return nodes;
+    }
+
+    private JsNode readNode(int kind, boolean shareable) {
+        switch (kind) {
+            case JsAstFormat.ARRAY_ACCESS:
+                return new JsArrayAccess(readExpression(), readExpression());
+            case JsAstFormat.ARRAY:
+                return new JsArrayLiteral(this.<JsExpression>readList());
+            case JsAstFormat.BINARY:
+                return readBinaryChain();
+            case JsAstFormat.BLOCK:
+                return new JsBlock(readList());
+            case JsAstFormat.GLOBAL_BLOCK:
+                return new JsGlobalBlock(readList());
+            case JsAstFormat.TRUE:
+                return JsLiteral.TRUE;
+            case JsAstFormat.FALSE:
+                return JsLiteral.FALSE;
+            case JsAstFormat.BREAK:
+                return new JsBreak(readNullableString());
+            case JsAstFormat.CASE: {
+                JsCase x = new JsCase();
+                x.setCaseExpression(readExpression());
+                x.getStatements().addAll(readList());
+                return x;
+            }
+            case JsAstFormat.CATCH: {
+                JsParameter parameter = (JsParameter) readNode();
+                JsCatch x = new JsCatch(parameter.getName());
+                x.getParameter().setSource(parameter.getSource());
+                x.setCondition(readExpression());
+                x.setBody(readBlock());
+                return x;
+            }
+            case JsAstFormat.CONDITIONAL:
+                return new JsConditional(readExpression(), readExpression(), readExpression());
+            case JsAstFormat.CONTINUE:
+                return new JsContinue(readNullableString());
+            case JsAstFormat.DEBUGGER:
+                return new JsDebugger();
+            case JsAstFormat.DEFAULT: {
+                JsDefault x = new JsDefault();
+                x.getStatements().addAll(readList());
+                return x;
+            }
+            case JsAstFormat.DO_WHILE: {
+                JsDoWhile x = new JsDoWhile();
+                x.setCondition(readExpression());
+                x.setBody(readNode());
+                return x;
+            }
+            case JsAstFormat.EMPTY:
+                return JsStatement.EMPTY;
+            case JsAstFormat.FOR: {
+                JsNode init = readNode();
+                JsExpression condition = readExpression();
+                JsExpression increment = readExpression();
+                JsFor x = init instanceof JsVars
+                          ? new JsFor((JsVars) init, condition, increment)
+                          : new JsFor((JsExpression) init, condition, increment);
+                x.setBody(readNode());
+                return x;
+            }
+            case JsAstFormat.FOR_IN: {
+                JsForIn x = new JsForIn(readNullableString());
+                x.setIterExpression(readExpression());
+                x.setObjectExpression(readExpression());
+                x.setBody((JsStatement) readNode());
+                return x;
+            }
+            case JsAstFormat.FUNCTION: {
+                JsFunction x = new JsFunction(scope);
+                x.setName(readNullableString());
+                x.setParameters(this.<JsParameter>readList());
+                JsScope outer = scope;
+                scope = x.getScope();
+                x.setBody(readBlock());
+                scope = outer;
+                return x;
+            }
+            case JsAstFormat.IF:
+                return new JsIf(readExpression(), readNode(), readNode());
+            case JsAstFormat.INVOCATION:
+                return new JsInvocation(readExpression(), this.<JsExpression>readList());
+            case JsAstFormat.LABEL:
+                return new JsLabel(readString(), readNode());
+            case JsAstFormat.NAME_REF:
+                return readQualifierChain(true);
+            case JsAstFormat.NAME:
+                return readQualifierChain(false);
+            case JsAstFormat.NEW:
+                return new JsNew(readExpression(), this.<JsExpression>readList());
+            case JsAstFormat.NULL_LITERAL:
+                return JsLiteral.NULL;
+            case JsAstFormat.INT:
+                return number(readZigZagInt(), shareable);
+            case JsAstFormat.LONG:
+                return number(readZigZagLong(), shareable);
+            case JsAstFormat.DOUBLE:
+                return number(Double.longBitsToDouble(((long) readInt() << 32) | (readInt() & 0xffffffffL)), shareable);
+            case JsAstFormat.FLOAT:
+                return number(Float.intBitsToFloat(readInt()), shareable);
+            case JsAstFormat.SHORT:
+                return number((short) readZigZagInt(), shareable);
+            case JsAstFormat.BYTE:
+                return number((byte) readZigZagInt(), shareable);
+            case JsAstFormat.OBJECT_LITERAL: {
+                boolean multiline = buffer.get() != 0;
+                return new JsObjectLiteral(this.<JsPropertyInitializer>readList(), multiline);
+            }
+            case JsAstFormat.PARAMETER:
+                return new JsParameter(readString());
+            case JsAstFormat.POSTFIX:
+                return new JsPostfixOperation(UNARY_OPERATORS[readVarInt()], readExpression());
+            case JsAstFormat.PREFIX:
+                return new JsPrefixOperation(UNARY_OPERATORS[readVarInt()], readExpression());
+            case JsAstFormat.PROPERTY_INITIALIZER: {
+                String label = readNullableString();
+                if (label != null) {
+                    return new JsPropertyInitializer(label, readExpression());
+                }
+                return new JsPropertyInitializer(readExpression(), readExpression());
+            }
+            case JsAstFormat.REGEXP: {
+                JsRegExp x = new JsRegExp();
+                x.setPattern(readString());
+                x.setFlags(readNullableString());
+                return x;
+            }
+            case JsAstFormat.RETURN:
+                return new JsReturn(readExpression());
+            case JsAstFormat.STRING: {
+                char quote = (char) readVarInt();
+                return shareable ? leaves.string(readString(), quote) : new JsStringLiteral(readString(), quote);
+            }
+            case JsAstFormat.SWITCH: {
+                JsSwitch x = new JsSwitch();
+                x.setExpression(readExpression());
+                x.getCases().addAll(this.<JsSwitchMember>readList());
+                return x;
+            }
+            case JsAstFormat.THIS:
+                return JsLiteral.THIS;
+            case JsAstFormat.THROW:
+                return new JsThrow(readExpression());
+            case JsAstFormat.TRY:
+                return new JsTry(readBlock(), this.<JsCatch>readList(), readBlock());
+            case JsAstFormat.VAR:
+                return new JsVar(readString(), readExpression());
+            case JsAstFormat.VARS: {
+                boolean multiline = buffer.get() != 0;
+                return new JsVars(this.<JsVar>readList(), multiline);
+            }
+            case JsAstFormat.WHILE: {
+                JsWhile x = new JsWhile();
+                x.setCondition(readExpression());
+                x.setBody(readNode());
+                return x;
+            }
+            case JsAstFormat.DOC_COMMENT:
+                return readDocComment();
+            default:
+                throw new IllegalArgumentException("Malformed serialized AST: unknown node kind " + kind);
+        }
+    }
+
+    private JsNumberLiteral number(Number value, boolean shareable) {
+        return shareable ? leaves.number(value) : new JsNumberLiteral(value);
+    }
+
+    private JsExpression readBinaryChain() {
+        // the tag of the outermost operation is already read, nested left operands follow it
+        int start = binaryChain.size();
+        binaryChain.add(new JsBinaryOperation(BINARY_OPERATORS[readVarInt()]));
+        while (peekKind() == JsAstFormat.BINARY) {
+            Object source = readSource(buffer.get() & 0xff);
+            JsBinaryOperation operation = new JsBinaryOperation(BINARY_OPERATORS[readVarInt()]);
+            if (source != null) {
+                operation.setSource(source);
+            }
+            binaryChain.add(operation);
+        }
+
+        JsExpression arg1 = readExpression();
+        for (int i = binaryChain.size() - 1; i >= start; i--) {
+            JsBinaryOperation operation = binaryChain.remove(i);
+            operation.setArg1(arg1);
+            operation.setArg2(readExpression());
+            arg1 = operation;
+        }
+        return arg1;
+    }
+
+    private JsNameRef readQualifierChain(boolean qualified) {
+        // the tag of the outermost reference is already read, its qualifier follows the name
+        JsNameRef first = new JsNameRef(readNullableString());
+        JsNameRef last = first;
+        while (qualified) {
+            int kind = peekKind();
+            if (kind != JsAstFormat.NAME_REF && kind != JsAstFormat.NAME) {
+                last.setQualifier(readExpression());
+                break;
+            }
+
+            Object source = readSource(buffer.get() & 0xff);
+            JsNameRef qualifier = new JsNameRef(readNullableString());
+            if (source != null) {
+                qualifier.setSource(source);
+            }
+            last.setQualifier(qualifier);
+            last = qualifier;
+            qualified = kind == JsAstFormat.NAME_REF;
+        }
+        return first;
+    }
+
+    private JsDocComment readDocComment() {
+        int count = readVarInt();
+        Map<String, Object> tags = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < count; i++) {
+            String name = readString();
+            tags.put(name, buffer.get() == JsAstFormat.TAG_NODE ? readNode() : readString());
+        }
+        return new JsDocComment(tags);
+    }
+}
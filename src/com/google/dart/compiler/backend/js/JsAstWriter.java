@@ -0,0 +1,626 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.Source;
+import com.google.dart.compiler.backend.js.ast.*;
+import com.google.dart.compiler.common.SourceInfo;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Serializes an AST to the compact binary format described in {@link JsAstFormat}, {@link JsAstReader} reads it back.
+ * <p/>
+ * Names and string values are written once to a shared string table. Source info of nodes is written only if requested
+ * and only if it is a {@link SourceInfo}, its source is kept by name. Left-nested binary operations and qualifier chains
+ * are written in a loop, so long concatenations don't overflow the stack. If the root is a block, offsets of its
+ * statements and the names they declare are indexed, so {@link JsAstLoader} can read them separately.
+ * <p/>
+ * A {@link ChameleonJsExpression} is written as the expression it resolves to.
+ */
+public final class JsAstWriter extends JsVisitor {
+    private final boolean writeSourceInfo;
+
+    private final Map<String, Integer> stringIndices = new THashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+    private final Map<SourceInfo, Integer> sourceInfoIndices = new IdentityHashMap<SourceInfo, Integer>();
+    private final List<SourceInfo> sourceInfos = new ArrayList<SourceInfo>();
+
+    private final Buffer body = new Buffer(4096);
+    // offsets of top-level statements in the body if the root is a block
+    private List<JsNode> topLevelStatements;
+    private int[] topLevelOffsets;
+    private final List<JsBinaryOperation> binaryChain = new ArrayList<JsBinaryOperation>();
+
+    private JsAstWriter(boolean writeSourceInfo) {
+        this.writeSourceInfo = writeSourceInfo;
+    }
+
+    public static void write(JsNode root, OutputStream out, boolean writeSourceInfo) throws IOException {
+        JsAstWriter writer = new JsAstWriter(writeSourceInfo);
+        writer.writeRoot(root);
+        writer.writeHeader().writeTo(out);
+        writer.body.writeTo(out);
+    }
+
+    public static byte[] toByteArray(JsNode root, boolean writeSourceInfo) {
+        JsAstWriter writer = new JsAstWriter(writeSourceInfo);
+        writer.writeRoot(root);
+        Buffer header = writer.writeHeader();
+        byte[] bytes = Arrays.copyOf(header.bytes, header.size + writer.body.size);
+        System.arraycopy(writer.body.bytes, 0, bytes, header.size, writer.body.size);
+        return bytes;
+    }
+
+    private void writeRoot(JsNode root) {
+        if (!(root instanceof JsBlock)) {
+            accept(root);
+            return;
+        }
+
+        JsBlock block = (JsBlock) root;
+        writeTag(block.isGlobalBlock() ? JsAstFormat.GLOBAL_BLOCK : JsAstFormat.BLOCK, block);
+        topLevelStatements = block.getStatements();
+        topLevelOffsets = new int[topLevelStatements.size()];
+        body.writeVarInt(topLevelOffsets.length);
+        for (int i = 0; i < topLevelOffsets.length; i++) {
+            topLevelOffsets[i] = body.size;
+            writeNode(topLevelStatements.get(i));
+        }
+    }
+
+    // everything before the root node, the body is written after it as is
+    private Buffer writeHeader() {
+        Buffer header = new Buffer(1024);
+        header.writeInt(JsAstFormat.MAGIC);
+        header.writeVarInt(JsAstFormat.VERSION);
+        header.writeVarInt((writeSourceInfo ? JsAstFormat.HAS_SOURCE_INFO_SECTION : 0) |
+                           (topLevelOffsets == null ? 0 : JsAstFormat.HAS_INDEX));
+
+        // names of sources and declarations are added to the string table, so these sections are encoded first
+        Buffer sourceInfoSection = null;
+        if (writeSourceInfo) {
+            sourceInfoSection = new Buffer(8 + sourceInfos.size() * JsAstFormat.SOURCE_INFO_SIZE);
+            sourceInfoSection.writeVarInt(sourceInfos.size());
+            for (SourceInfo info : sourceInfos) {
+                Source source = info.getSource();
+                sourceInfoSection.writeInt(source == null ? 0 : getStringIndex(source.getName()) + 1);
+                sourceInfoSection.writeInt(info.getLine());
+                sourceInfoSection.writeInt(info.getColumn());
+                sourceInfoSection.writeInt(info.getStart());
+                sourceInfoSection.writeInt(info.getLength());
+            }
+        }
+        Buffer index = topLevelOffsets == null ? null : writeIndex();
+
+        header.writeVarInt(strings.size());
+        for (String string : strings) {
+            header.writeString(string);
+        }
+        if (sourceInfoSection != null) {
+            header.write(sourceInfoSection);
+        }
+        if (index != null) {
+            header.writeVarInt(index.size);
+            header.write(index);
+        }
+        header.writeVarInt(body.size);
+        return header;
+    }
+
+    private Buffer writeIndex() {
+        Buffer index = new Buffer(8 + topLevelOffsets.length * 4);
+        index.writeVarInt(topLevelOffsets.length);
+        int previous = 0;
+        for (int i = 0; i < topLevelOffsets.length; i++) {
+            index.writeVarInt(topLevelOffsets[i] - previous);
+            previous = topLevelOffsets[i];
+
+            JsNode statement = topLevelStatements.get(i);
+            if (statement instanceof JsFunction && ((JsFunction) statement).getName() != null) {
+                index.writeVarInt(1);
+                index.writeVarInt(getStringIndex(((JsFunction) statement).getName()));
+            }
+            else if (statement instanceof JsVars) {
+                List<JsVar> vars = ((JsVars) statement).getVars();
+                index.writeVarInt(vars.size());
+                for (JsVar var : vars) {
+                    index.writeVarInt(getStringIndex(var.getName()));
+                }
+            }
+            else {
+                index.writeVarInt(0);
+            }
+        }
+        return index;
+    }
+
+    private int getStringIndex(String string) {
+        Integer index = stringIndices.get(string);
+        if (index == null) {
+            index = strings.size();
+            stringIndices.put(string, index);
+            strings.add(string);
+        }
+        return index;
+    }
+
+    private void writeString(String string) {
+        body.writeVarInt(getStringIndex(string));
+    }
+
+    private void writeNullableString(@Nullable String string) {
+        body.writeVarInt(string == null ? 0 : getStringIndex(string) + 1);
+    }
+
+    private void writeTag(int kind, JsNode node) {
+        Object source = writeSourceInfo ? node.getSource() : null;
+        if (source instanceof SourceInfo) {
+            body.writeByte(kind | JsAstFormat.HAS_SOURCE);
+            Integer index = sourceInfoIndices.get(source);
+            if (index == null) {
+                index = sourceInfos.size();
+                sourceInfoIndices.put((SourceInfo) source, index);
+                sourceInfos.add((SourceInfo) source);
+            }
+            body.writeVarInt(index);
+        }
+        else {
+            body.writeByte(kind);
+        }
+    }
+
+    private void writeNode(@Nullable JsNode node) {
+        if (node == null) {
+            body.writeByte(JsAstFormat.NULL);
+        }
+        else {
+            accept(node);
+        }
+    }
+
+    private void writeList(List<? extends JsNode> nodes) {
+        body.writeVarInt(nodes.size());
+        for (JsNode node : nodes) {
+            writeNode(node);
+        }
+    }
+
+    @Override
+    public void visitArrayAccess(JsArrayAccess x) {
+        writeTag(JsAstFormat.ARRAY_ACCESS, x);
+        writeNode(x.getArrayExpression());
+        writeNode(x.getIndexExpression());
+    }
+
+    @Override
+    public void visitArray(JsArrayLiteral x) {
+        writeTag(JsAstFormat.ARRAY, x);
+        writeList(x.getExpressions());
+    }
+
+    @Override
+    public void visitBinaryExpression(JsBinaryOperation x) {
+        // operators of the left-nested chain first, then the innermost left operand and right operands from inside out
+        int start = binaryChain.size();
+        JsExpression arg1 = x;
+        while (arg1 instanceof JsBinaryOperation) {
+            JsBinaryOperation operation = (JsBinaryOperation) arg1;
+            writeTag(JsAstFormat.BINARY, operation);
+            body.writeVarInt(operation.getOperator().ordinal());
+            binaryChain.add(operation);
+            arg1 = operation.getArg1();
+        }
+
+        writeNode(arg1);
+        for (int i = binaryChain.size() - 1; i >= start; i--) {
+            writeNode(binaryChain.remove(i).getArg2());
+        }
+    }
+
+    @Override
+    public void visitBlock(JsBlock block) {
+        writeTag(block.isGlobalBlock() ? JsAstFormat.GLOBAL_BLOCK : JsAstFormat.BLOCK, block);
+        writeList(block.getStatements());
+    }
+
+    @Override
+    public void visitBoolean(JsLiteral.JsBooleanLiteral x) {
+        // shared instances, so they have no source info
+        body.writeByte(x.getValue() ? JsAstFormat.TRUE : JsAstFormat.FALSE);
+    }
+
+    @Override
+    public void visitBreak(JsBreak x) {
+        writeTag(JsAstFormat.BREAK, x);
+        writeNullableString(x.getLabel());
+    }
+
+    @Override
+    public void visitCase(JsCase x) {
+        writeTag(JsAstFormat.CASE, x);
+        writeNode(x.getCaseExpression());
+        writeList(x.getStatements());
+    }
+
+    @Override
+    public void visitCatch(JsCatch x) {
+        writeTag(JsAstFormat.CATCH, x);
+        writeNode(x.getParameter());
+        writeNode(x.getCondition());
+        writeNode(x.getBody());
+    }
+
+    @Override
+    public void visitConditional(JsConditional x) {
+        writeTag(JsAstFormat.CONDITIONAL, x);
+        writeNode(x.getTestExpression());
+        writeNode(x.getThenExpression());
+        writeNode(x.getElseExpression());
+    }
+
+    @Override
+    public void visitContinue(JsContinue x) {
+        writeTag(JsAstFormat.CONTINUE, x);
+        writeNullableString(x.getLabel());
+    }
+
+    @Override
+    public void visitDebugger(JsDebugger x) {
+        writeTag(JsAstFormat.DEBUGGER, x);
+    }
+
+    @Override
+    public void visitDefault(JsDefault x) {
+        writeTag(JsAstFormat.DEFAULT, x);
+        writeList(x.getStatements());
+    }
+
+    @Override
+    public void visitDoWhile(JsDoWhile x) {
+        writeTag(JsAstFormat.DO_WHILE, x);
+        writeNode(x.getCondition());
+        writeNode(x.getBody());
+    }
+
+    @Override
+    public void visitEmpty(JsEmpty x) {
+        body.writeByte(JsAstFormat.EMPTY);
+    }
+
+    @Override
+    public void visitFor(JsFor x) {
+        writeTag(JsAstFormat.FOR, x);
+        writeNode(x.getInitVars() == null ? x.getInitExpression() : x.getInitVars());
+        writeNode(x.getCondition());
+        writeNode(x.getIncrementExpression());
+        writeNode(x.getBody());
+    }
+
+    @Override
+    public void visitForIn(JsForIn x) {
+        writeTag(JsAstFormat.FOR_IN, x);
+        writeNullableString(x.getIterVarName());
+        writeNode(x.getIterExpression());
+        writeNode(x.getObjectExpression());
+        writeNode(x.getBody());
+    }
+
+    @Override
+    public void visitFunction(JsFunction x) {
+        writeTag(JsAstFormat.FUNCTION, x);
+        writeNullableString(x.getName());
+        writeList(x.getParameters());
+        writeNode(x.getBody());
+    }
+
+    @Override
+    public void visitIf(JsIf x) {
+        writeTag(JsAstFormat.IF, x);
+        writeNode(x.getIf());
+        writeNode(x.getThen());
+        writeNode(x.getElse());
+    }
+
+    @Override
+    public void visitInvocation(JsInvocation invocation) {
+        writeTag(JsAstFormat.INVOCATION, invocation);
+        writeNode(invocation.getQualifier());
+        writeList(invocation.getArguments());
+    }
+
+    @Override
+    public void visitLabel(JsLabel x) {
+        writeTag(JsAstFormat.LABEL, x);
+        writeString(x.getName());
+        writeNode(x.getStatement());
+    }
+
+    @Override
+    public void visitNameRef(JsNameRef nameRef) {
+        JsExpression qualifier = nameRef;
+        do {
+            JsNameRef reference = (JsNameRef) qualifier;
+            qualifier = reference.getQualifier();
+            writeTag(qualifier == null ? JsAstFormat.NAME : JsAstFormat.NAME_REF, reference);
+            writeNullableString(reference.getName());
+        }
+        while (qualifier instanceof JsNameRef);
+        if (qualifier != null) {
+            writeNode(qualifier);
+        }
+    }
+
+    @Override
+    public void visitNew(JsNew x) {
+        writeTag(JsAstFormat.NEW, x);
+        writeNode(x.getConstructorExpression());
+        writeList(x.getArguments());
+    }
+
+    @Override
+    public void visitNull(JsNullLiteral x) {
+        body.writeByte(JsAstFormat.NULL_LITERAL);
+    }
+
+    @Override
+    public void visitNumber(JsNumberLiteral number) {
+        Number value = number.getValue();
+        if (value instanceof Integer) {
+            writeTag(JsAstFormat.INT, number);
+            body.writeZigZag(value.intValue());
+        }
+        else if (value instanceof Double) {
+            writeTag(JsAstFormat.DOUBLE, number);
+            body.writeLong(Double.doubleToRawLongBits(value.doubleValue()));
+        }
+        else if (value instanceof Long) {
+            writeTag(JsAstFormat.LONG, number);
+            body.writeZigZag(value.longValue());
+        }
+        else if (value instanceof Float) {
+            writeTag(JsAstFormat.FLOAT, number);
+            body.writeInt(Float.floatToRawIntBits(value.floatValue()));
+        }
+        else if (value instanceof Short) {
+            writeTag(JsAstFormat.SHORT, number);
+            body.writeZigZag(value.shortValue());
+        }
+        else if (value instanceof Byte) {
+            writeTag(JsAstFormat.BYTE, number);
+            body.writeZigZag(value.byteValue());
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported number type: " + value.getClass().getName());
+        }
+    }
+
+    @Override
+    public void visitObjectLiteral(JsObjectLiteral x) {
+        writeTag(JsAstFormat.OBJECT_LITERAL, x);
+        body.writeByte(x.isMultiline() ? 1 : 0);
+        writeList(x.getPropertyInitializers());
+    }
+
+    @Override
+    public void visitParameter(JsParameter x) {
+        writeTag(JsAstFormat.PARAMETER, x);
+        writeString(x.getName());
+    }
+
+    @Override
+    public void visitPostfixOperation(JsPostfixOperation x) {
+        writeTag(JsAstFormat.POSTFIX, x);
+        body.writeVarInt(x.getOperator().ordinal());
+        writeNode(x.getArg());
+    }
+
+    @Override
+    public void visitPrefixOperation(JsPrefixOperation x) {
+        writeTag(JsAstFormat.PREFIX, x);
+        body.writeVarInt(x.getOperator().ordinal());
+        writeNode(x.getArg());
+    }
+
+    @Override
+    public void visitPropertyInitializer(JsPropertyInitializer x) {
+        writeTag(JsAstFormat.PROPERTY_INITIALIZER, x);
+        // either the label or the label expression is set
+        writeNullableString(x.getLabel());
+        if (x.getLabel() == null) {
+            writeNode(x.getLabelExpr());
+        }
+        writeNode(x.getValueExpr());
+    }
+
+    @Override
+    public void visitRegExp(JsRegExp x) {
+        writeTag(JsAstFormat.REGEXP, x);
+        writeString(x.getPattern());
+        writeNullableString(x.getFlags());
+    }
+
+    @Override
+    public void visitReturn(JsReturn x) {
+        writeTag(JsAstFormat.RETURN, x);
+        writeNode(x.getExpression());
+    }
+
+    @Override
+    public void visitString(JsStringLiteral x) {
+        writeTag(JsAstFormat.STRING, x);
+        body.writeVarInt(x.getQuote());
+        writeString(x.getValue().toString());
+    }
+
+    @Override
+    public void visit(JsSwitch x) {
+        writeTag(JsAstFormat.SWITCH, x);
+        writeNode(x.getExpression());
+        writeList(x.getCases());
+    }
+
+    @Override
+    public void visitThis(JsLiteral.JsThisRef x) {
+        body.writeByte(JsAstFormat.THIS);
+    }
+
+    @Override
+    public void visitThrow(JsThrow x) {
+        writeTag(JsAstFormat.THROW, x);
+        writeNode(x.getExpression());
+    }
+
+    @Override
+    public void visitTry(JsTry x) {
+        writeTag(JsAstFormat.TRY, x);
+        writeNode(x.getTryBlock());
+        writeList(x.getCatches());
+        writeNode(x.getFinallyBlock());
+    }
+
+    @Override
+    public void visit(JsVar x) {
+        writeTag(JsAstFormat.VAR, x);
+        writeString(x.getName());
+        writeNode(x.getInitExpression());
+    }
+
+    @Override
+    public void visitVars(JsVars x) {
+        writeTag(JsAstFormat.VARS, x);
+        body.writeByte(x.isMultiline() ? 1 : 0);
+        writeList(x.getVars());
+    }
+
+    @Override
+    public void visitWhile(JsWhile x) {
+        writeTag(JsAstFormat.WHILE, x);
+        writeNode(x.getCondition());
+        writeNode(x.getBody());
+    }
+
+    @Override
+    public void visitDocComment(JsDocComment comment) {
+        writeTag(JsAstFormat.DOC_COMMENT, comment);
+        Map<String, Object> tags = comment.getTags();
+        body.writeVarInt(tags.size());
+        for (Map.Entry<String, Object> entry : tags.entrySet()) {
+            writeString(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof JsNode) {
+                body.writeByte(JsAstFormat.TAG_NODE);
+                writeNode((JsNode) value);
+            }
+            else if (value instanceof String) {
+                body.writeByte(JsAstFormat.TAG_STRING);
+                writeString((String) value);
+            }
+            else {
+                throw new IllegalArgumentException("Unsupported doc comment tag value: " + value);
+            }
+        }
+    }
+
+    @Override
+    protected void visitElement(JsNode node) {
+        throw new IllegalArgumentException("Unsupported node: " + node.getClass().getName());
+    }
+
+    private static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeZigZag(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        void writeZigZag(long value) {
+            value = (value << 1) ^ (value >> 63);
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        // chars in modified UTF-8, so unpaired surrogates of JS strings are kept
+        void writeString(String string) {
+            int length = string.length();
+            int byteLength = length;
+            for (int i = 0; i < length; i++) {
+                char c = string.charAt(i);
+                if (c >= 0x80) {
+                    byteLength += c < 0x800 ? 1 : 2;
+                }
+            }
+            writeVarInt(byteLength);
+            ensureCapacity(byteLength);
+            for (int i = 0; i < length; i++) {
+                char c = string.charAt(i);
+                if (c < 0x80) {
+                    bytes[size++] = (byte) c;
+                }
+                else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xc0 | (c >> 6));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3f));
+                }
+                else {
+                    bytes[size++] = (byte) (0xe0 | (c >> 12));
+                    bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        void write(Buffer other) {
+            ensureCapacity(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+    }
+}
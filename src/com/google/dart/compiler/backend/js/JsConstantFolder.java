@@ -0,0 +1,867 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds operations on literals, prunes branches of {@code if} statements and conditional expressions with a literal
+ * condition, removes {@code while (false)} loops and simplifies {@code &&}, {@code ||} and {@code ,} with a literal
+ * left operand.
+ * <p/>
+ * Only literals that can be dropped without losing side effects are evaluated: numbers, strings, booleans and null.
+ * A quoted string literal is evaluated only if its text has no escape sequences, strings are produced as unescaped literals. An operation isn't folded if JavaScript would give a result that can't be written as a literal
+ * or that differs from the Java one (NaN, Infinity, string conversion of fractions), a fraction is folded only
+ * if it isn't longer than the operation. Negative results are negations of positive literals, as the printer expects.
+ * <p/>
+ * Variables declared in pruned code are kept (without initializers), code that declares a named function isn't pruned.
+ * A callee or an operand of {@code delete} or {@code typeof} that is folded to a reference is printed as {@code (0, reference)},
+ * so {@code this} of the call and the meaning of the operator don't change.
+ * <p/>
+ * Nodes are modified in place.
+ */
+public final class JsConstantFolder extends RecursiveJsVisitor {
+    // value of the null literal
+    private static final Object NULL = new Object();
+
+    private static final double MAX_SAFE_INTEGER = 9007199254740991d;
+
+    // node to use instead of the visited one, null if it isn't replaced
+    private JsNode replacement;
+
+    // left-nested binary operations being folded, see visitBinaryExpression
+    private final List<JsBinaryOperation> binaryChain = new ArrayList<JsBinaryOperation>();
+
+    // literal produced by the last concatenation of the chain being folded, its value is a builder that can be appended to,
+    // see closeConcatenation
+    private JsStringLiteral lastConcatenation;
+
+    private JsConstantFolder() {
+    }
+
+    /**
+     * Returns the node to use instead of the given one, it is the given node unless the node itself is folded.
+     */
+    public static JsNode exec(JsNode node) {
+        JsNode result = new JsConstantFolder().replace(node);
+        return result == null ? node : result;
+    }
+
+    @Override
+    public <T extends JsNode> void accept(T node) {
+        node.accept(this);
+        // the node is in a slot that isn't folded
+        replacement = null;
+    }
+
+    @Nullable
+    private JsNode replace(JsNode node) {
+        node.accept(this);
+        JsNode result = replacement;
+        replacement = null;
+        return result;
+    }
+
+    private JsExpression fold(@Nullable JsExpression expression) {
+        if (expression == null) {
+            return null;
+        }
+        JsNode result = replace(expression);
+        return result == null ? expression : (JsExpression) result;
+    }
+
+    /**
+     * Folds an expression whose reference matters, not only its value: a callee, or an operand of {@code delete} or {@code typeof}.
+     * If an operation (like {@code (0, o.f)} or {@code true && o.f}) is folded to a reference, it's kept as {@code (0, o.f)},
+     * so a method isn't called with a different {@code this}, a property isn't deleted and an undeclared variable still throws.
+     */
+    private JsExpression foldReference(JsExpression expression, boolean callee) {
+        JsExpression result = fold(expression);
+        if (result == expression || !isReference(result, callee)) {
+            return result;
+        }
+        if (expression instanceof JsBinaryOperation && ((JsBinaryOperation) expression).getOperator() == JsBinaryOperator.COMMA &&
+            ((JsBinaryOperation) expression).getArg2() == result) {
+            // already (literal, reference)
+            return expression;
+        }
+        JsBinaryOperation sequence = new JsBinaryOperation(JsBinaryOperator.COMMA, new JsNumberLiteral(0), result);
+        sequence.setSource(expression.getSource());
+        return sequence;
+    }
+
+    private static boolean isReference(JsExpression expression, boolean callee) {
+        if (expression instanceof JsArrayAccess) {
+            return true;
+        }
+        if (!(expression instanceof JsNameRef)) {
+            return false;
+        }
+        // a call by an unqualified name has undefined this anyway, unless it's a direct eval
+        JsNameRef nameRef = (JsNameRef) expression;
+        return !callee || nameRef.getQualifier() != null || "eval".equals(nameRef.getName());
+    }
+
+    private JsExpression foldCondition(@Nullable JsExpression condition) {
+        JsExpression result = fold(condition);
+        // !!x is x if only the truth value matters
+        while (isNot(result) && isNot(((JsPrefixOperation) result).getArg())) {
+            result = ((JsPrefixOperation) ((JsPrefixOperation) result).getArg()).getArg();
+        }
+        return result;
+    }
+
+    private static boolean isNot(JsExpression expression) {
+        return expression instanceof JsPrefixOperation && ((JsPrefixOperation) expression).getOperator() == JsUnaryOperator.NOT;
+    }
+
+    private void foldList(List<JsExpression> expressions) {
+        for (int i = 0, n = expressions.size(); i < n; i++) {
+            JsExpression expression = expressions.get(i);
+            JsExpression result = fold(expression);
+            if (result != expression) {
+                expressions.set(i, result);
+            }
+        }
+    }
+
+    // for slots that hold a single statement
+    @Nullable
+    private JsNode foldStatement(@Nullable JsNode statement) {
+        if (statement == null) {
+            return null;
+        }
+        // a pruned if may put the statement at the start of a body
+        JsNode result = replaceStatement(statement, true);
+        if (result == null) {
+            return statement;
+        }
+        return result == JsStatement.EMPTY ? new JsBlock() : result;
+    }
+
+    /**
+     * Folds the statement. An expression statement that would be printed as something else is kept as {@code 0, result}:
+     * {@code 0, function g() {}} isn't a declaration, {@code true && {a: 1}} isn't a block, and {@code 'use' + ' strict'}
+     * in the directive prologue of a body isn't a directive.
+     */
+    @Nullable
+    private JsNode replaceStatement(JsNode statement, boolean prologue) {
+        JsNode result = replace(statement);
+        if (!(statement instanceof JsExpression) || statement instanceof JsFunction || statement instanceof JsStringLiteral) {
+            return result;
+        }
+
+        JsExpression expression = (JsExpression) (result == null ? statement : result);
+        if (!(expression instanceof JsFunction) && !JsFirstExpressionVisitor.exec(expression) &&
+            !(prologue && expression instanceof JsStringLiteral)) {
+            return result;
+        }
+        if (statement instanceof JsBinaryOperation && ((JsBinaryOperation) statement).getOperator() == JsBinaryOperator.COMMA &&
+            ((JsBinaryOperation) statement).getArg2() == expression) {
+            // already (literal, expression)
+            return null;
+        }
+        JsBinaryOperation sequence = new JsBinaryOperation(JsBinaryOperator.COMMA, new JsNumberLiteral(0), expression);
+        sequence.setSource(statement.getSource());
+        return sequence;
+    }
+
+    private JsStatement foldBody(JsNode body) {
+        JsNode result = foldStatement(body);
+        return result instanceof JsStatement ? (JsStatement) result : new JsBlock(result);
+    }
+
+    private void foldStatements(List<JsNode> statements) {
+        // copied only if a statement is replaced, so the list is rebuilt at most once
+        List<JsNode> result = null;
+        // only string statements precede, any block may become a body when an enclosing if is pruned
+        boolean prologue = true;
+        for (int i = 0, n = statements.size(); i < n; i++) {
+            JsNode statement = statements.get(i);
+            JsNode statementReplacement = replaceStatement(statement, prologue);
+            if (statementReplacement != null && result == null) {
+                result = new ArrayList<JsNode>(n);
+                result.addAll(statements.subList(0, i));
+            }
+
+            if (statementReplacement == null) {
+                if (result != null) {
+                    result.add(statement);
+                }
+                prologue &= statement instanceof JsStringLiteral;
+            }
+            else if (statementReplacement instanceof JsBlock) {
+                // only pruned statements are replaced by blocks, no need to keep braces
+                List<JsNode> blockStatements = ((JsBlock) statementReplacement).getStatements();
+                result.addAll(blockStatements);
+                for (JsNode blockStatement : blockStatements) {
+                    prologue &= blockStatement instanceof JsStringLiteral;
+                }
+            }
+            else if (statementReplacement != JsStatement.EMPTY) {
+                result.add(statementReplacement);
+                prologue &= statementReplacement instanceof JsStringLiteral;
+            }
+        }
+
+        if (result != null) {
+            statements.clear();
+            statements.addAll(result);
+        }
+    }
+
+    @Override
+    public void visitBlock(JsBlock block) {
+        foldStatements(block.getStatements());
+    }
+
+    @Override
+    public void visitCase(JsCase x) {
+        x.setCaseExpression(fold(x.getCaseExpression()));
+        foldStatements(x.getStatements());
+    }
+
+    @Override
+    public void visitDefault(JsDefault x) {
+        foldStatements(x.getStatements());
+    }
+
+    @Override
+    public void visit(JsSwitch x) {
+        x.setExpression(fold(x.getExpression()));
+        acceptList(x.getCases());
+    }
+
+    @Override
+    public void visitIf(JsIf x) {
+        x.setIf(foldCondition(x.getIf()));
+
+        JsNode then = x.getThen();
+        JsNode newThen = foldStatement(then);
+        JsNode elseStatement = x.getElse();
+        if (elseStatement != null) {
+            JsNode result = replaceStatement(elseStatement, true);
+            if (result != null) {
+                elseStatement = result == JsStatement.EMPTY ? null : result;
+            }
+        }
+        if (newThen != then && newThen instanceof JsIf && elseStatement != null) {
+            // else must not be taken by the nested if
+            newThen = new JsBlock(newThen);
+        }
+        x.setThen(newThen);
+        x.setElse(elseStatement);
+
+        Object condition = constantValue(x.getIf());
+        if (condition != null) {
+            boolean truthy = isTruthy(condition);
+            replacement = prune(x, truthy ? newThen : elseStatement, truthy ? elseStatement : newThen);
+        }
+    }
+
+    @Override
+    public void visitWhile(JsWhile x) {
+        x.setCondition(foldCondition(x.getCondition()));
+        x.setBody(foldStatement(x.getBody()));
+
+        Object condition = constantValue(x.getCondition());
+        if (condition != null && !isTruthy(condition)) {
+            replacement = prune(x, null, x.getBody());
+        }
+    }
+
+    @Override
+    public void visitDoWhile(JsDoWhile x) {
+        x.setBody(foldStatement(x.getBody()));
+        x.setCondition(foldCondition(x.getCondition()));
+    }
+
+    @Override
+    public void visitFor(JsFor x) {
+        if (x.getInitVars() != null) {
+            accept(x.getInitVars());
+        }
+        else {
+            x.setInitExpression(fold(x.getInitExpression()));
+        }
+        x.setCondition(foldCondition(x.getCondition()));
+        x.setIncrementExpression(fold(x.getIncrementExpression()));
+        x.setBody(foldBody(x.getBody()));
+    }
+
+    @Override
+    public void visitForIn(JsForIn x) {
+        if (x.getIterExpression() != null) {
+            accept(x.getIterExpression());
+        }
+        x.setObjectExpression(fold(x.getObjectExpression()));
+        x.setBody(foldBody(x.getBody()));
+    }
+
+    @Override
+    public void visitLabel(JsLabel x) {
+        x.setStatement(foldStatement(x.getStatement()));
+    }
+
+    @Override
+    public void visitCatch(JsCatch x) {
+        x.setCondition(fold(x.getCondition()));
+        accept(x.getBody());
+    }
+
+    @Override
+    public void visitReturn(JsReturn x) {
+        x.setExpression(fold(x.getExpression()));
+    }
+
+    @Override
+    public void visitThrow(JsThrow x) {
+        x.setExpression(fold(x.getExpression()));
+    }
+
+    @Override
+    public void visit(JsVar x) {
+        x.setInitExpression(fold(x.getInitExpression()));
+    }
+
+    @Override
+    public void visitPropertyInitializer(JsPropertyInitializer x) {
+        if (x.getLabelExpr() != null) {
+            accept(x.getLabelExpr());
+        }
+        x.setValueExpr(fold(x.getValueExpr()));
+    }
+
+    @Override
+    public void visitNameRef(JsNameRef nameRef) {
+        if (nameRef.getQualifier() != null) {
+            nameRef.setQualifier(fold(nameRef.getQualifier()));
+        }
+    }
+
+    @Override
+    public void visitArrayAccess(JsArrayAccess x) {
+        x.setArrayExpression(fold(x.getArrayExpression()));
+        x.setIndexExpression(fold(x.getIndexExpression()));
+    }
+
+    @Override
+    public void visitArray(JsArrayLiteral x) {
+        foldList(x.getExpressions());
+    }
+
+    @Override
+    public void visitInvocation(JsInvocation invocation) {
+        if (invocation.getQualifier() != null) {
+            invocation.setQualifier(foldReference(invocation.getQualifier(), true));
+        }
+        foldList(invocation.getArguments());
+    }
+
+    @Override
+    public void visitNew(JsNew x) {
+        accept(x.getConstructorExpression());
+        foldList(x.getArguments());
+    }
+
+    @Override
+    public void visitConditional(JsConditional x) {
+        x.setTestExpression(foldCondition(x.getTestExpression()));
+        x.setThenExpression(fold(x.getThenExpression()));
+        x.setElseExpression(fold(x.getElseExpression()));
+
+        Object condition = constantValue(x.getTestExpression());
+        if (condition != null) {
+            replacement = isTruthy(condition) ? x.getThenExpression() : x.getElseExpression();
+        }
+    }
+
+    @Override
+    public void visitPrefixOperation(JsPrefixOperation x) {
+        JsUnaryOperator op = x.getOperator();
+        if (op == JsUnaryOperator.DELETE) {
+            x.setArg(foldReference(x.getArg(), false));
+            return;
+        }
+        if (op.isModifying()) {
+            // operand is a reference
+            accept(x.getArg());
+            return;
+        }
+
+        JsExpression arg = op == JsUnaryOperator.TYPEOF ? foldReference(x.getArg(), false) : fold(x.getArg());
+        x.setArg(arg);
+        Object value = constantValue(arg);
+        if (value == null) {
+            return;
+        }
+
+        JsExpression result = null;
+        switch (op) {
+            case NOT:
+                result = JsLiteral.getBoolean(!isTruthy(value));
+                break;
+            case NEG:
+                // -1 is already as short as it gets
+                if (value instanceof Double && !(arg instanceof JsNumberLiteral)) {
+                    result = createNumber(-(Double) value, Integer.MAX_VALUE);
+                }
+                break;
+            case POS:
+                if (value instanceof Double) {
+                    result = arg;
+                }
+                break;
+            case BIT_NOT:
+                if (value instanceof Double && isSafeInteger((Double) value)) {
+                    result = createNumber(~toInt32((Double) value), Integer.MAX_VALUE);
+                }
+                break;
+            case TYPEOF:
+                result = new JsStringLiteral(typeOf(value));
+                break;
+        }
+        setReplacement(x, result);
+    }
+
+    @Override
+    public void visitBinaryExpression(JsBinaryOperation x) {
+        // left-nested chains (e.g. long concatenations) are folded iteratively, from the innermost operation out
+        JsStringLiteral outerConcatenation = lastConcatenation;
+        lastConcatenation = null;
+        int start = binaryChain.size();
+        JsExpression left = x;
+        while (left instanceof JsBinaryOperation) {
+            binaryChain.add((JsBinaryOperation) left);
+            left = ((JsBinaryOperation) left).getArg1();
+        }
+        left = fold(left);
+
+        for (int i = binaryChain.size() - 1; i >= start; i--) {
+            JsBinaryOperation operation = binaryChain.remove(i);
+            operation.setArg1(left);
+            operation.setArg2(fold(operation.getArg2()));
+
+            JsExpression result = foldBinary(operation);
+            if (result == null) {
+                left = operation;
+            }
+            else {
+                left = withSource(operation, result);
+            }
+
+            if (lastConcatenation != null && !isOpenConcatenation(left)) {
+                // the next operation can't append to it
+                closeConcatenation(left);
+            }
+        }
+
+        if (lastConcatenation != null) {
+            left = closeConcatenation(left);
+        }
+        lastConcatenation = outerConcatenation;
+
+        if (left != x) {
+            replacement = left;
+        }
+    }
+
+    // true if the last concatenation is the expression or its last operand, where concat and foldConcatenation append
+    private boolean isOpenConcatenation(JsExpression expression) {
+        return expression == lastConcatenation ||
+               (expression instanceof JsBinaryOperation && ((JsBinaryOperation) expression).getOperator() == JsBinaryOperator.ADD &&
+                ((JsBinaryOperation) expression).getArg2() == lastConcatenation);
+    }
+
+    /**
+     * Replaces the last concatenation, found in the expression or in its operands, by a literal with a string value,
+     * so the tree doesn't keep a builder with spare capacity that a later run could append to.
+     */
+    private JsExpression closeConcatenation(JsExpression expression) {
+        JsStringLiteral concatenation = lastConcatenation;
+        lastConcatenation = null;
+        JsStringLiteral closed = JsStringLiteral.unescaped(concatenation.getValue().toString());
+        closed.setSource(concatenation.getSource());
+        if (expression == concatenation) {
+            return closed;
+        }
+
+        if (expression instanceof JsBinaryOperation) {
+            JsBinaryOperation operation = (JsBinaryOperation) expression;
+            if (operation.getArg2() == concatenation) {
+                operation.setArg2(closed);
+            }
+            else if (operation.getArg1() == concatenation) {
+                operation.setArg1(closed);
+            }
+            else if (operation.getArg1() instanceof JsBinaryOperation &&
+                     ((JsBinaryOperation) operation.getArg1()).getArg2() == concatenation) {
+                ((JsBinaryOperation) operation.getArg1()).setArg2(closed);
+            }
+        }
+        // otherwise it was folded away
+        return expression;
+    }
+
+    @Nullable
+    private JsExpression foldBinary(JsBinaryOperation x) {
+        JsBinaryOperator op = x.getOperator();
+        JsExpression arg1 = x.getArg1();
+        JsExpression arg2 = x.getArg2();
+        Object value1 = constantValue(arg1);
+        Object value2 = constantValue(arg2);
+
+        switch (op) {
+            case AND:
+                return value1 == null ? null : isTruthy(value1) ? arg2 : arg1;
+            case OR:
+                return value1 == null ? null : isTruthy(value1) ? arg1 : arg2;
+            case COMMA:
+                return value1 == null ? null : arg2;
+            case ADD:
+                if (value1 == null && value2 != null) {
+                    // (x + 'a') + 'b' is x + 'ab', x + 'a' is a string whatever x is
+                    return foldConcatenation(arg1, value2);
+                }
+                break;
+        }
+
+        if (value1 == null || value2 == null) {
+            return null;
+        }
+
+        if (value1 instanceof Double && value2 instanceof Double) {
+            return foldNumbers(op, (Double) value1, (Double) value2);
+        }
+
+        switch (op) {
+            case ADD:
+                if (value1 instanceof CharSequence || value2 instanceof CharSequence) {
+                    CharSequence string1 = toJsString(value1);
+                    CharSequence string2 = toJsString(value2);
+                    if (string1 != null && string2 != null) {
+                        return concat(arg1, string1, string2);
+                    }
+                }
+                return null;
+            case LT:
+            case LTE:
+            case GT:
+            case GTE:
+                if (value1 instanceof CharSequence && value2 instanceof CharSequence) {
+                    return compare(op, value1.toString().compareTo(value2.toString()));
+                }
+                return null;
+            case EQ:
+            case NEQ:
+                Boolean equal = isEqual(value1, value2, false);
+                return equal == null ? null : JsLiteral.getBoolean(equal == (op == JsBinaryOperator.EQ));
+            case REF_EQ:
+            case REF_NEQ:
+                return JsLiteral.getBoolean(isEqual(value1, value2, true) == (op == JsBinaryOperator.REF_EQ));
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private JsExpression foldConcatenation(JsExpression arg1, Object value2) {
+        if (!(arg1 instanceof JsBinaryOperation)) {
+            return null;
+        }
+        JsBinaryOperation concatenation = (JsBinaryOperation) arg1;
+        if (concatenation.getOperator() != JsBinaryOperator.ADD) {
+            return null;
+        }
+        JsExpression last = concatenation.getArg2();
+        Object lastValue = constantValue(last);
+        CharSequence string2 = toJsString(value2);
+        if (!(lastValue instanceof CharSequence) || string2 == null) {
+            return null;
+        }
+
+        concatenation.setArg2(concat(last, (CharSequence) lastValue, string2));
+        return concatenation;
+    }
+
+    private JsStringLiteral concat(JsExpression arg1, CharSequence string1, CharSequence string2) {
+        if (arg1 == lastConcatenation) {
+            // nothing else refers to it, append instead of copying the whole string again
+            ((StringBuilder) lastConcatenation.getValue()).append(string2);
+            return lastConcatenation;
+        }
+
+        StringBuilder builder = new StringBuilder(string1.length() + string2.length() + 16);
+        builder.append(string1).append(string2);
+        lastConcatenation = JsStringLiteral.unescaped(builder);
+        return lastConcatenation;
+    }
+
+    @Nullable
+    private static JsExpression foldNumbers(JsBinaryOperator op, double value1, double value2) {
+        // a fraction is folded only if it doesn't make the output longer
+        int maxLength = getPrintedLength(value1) + op.getSymbol().length() + getPrintedLength(value2);
+        switch (op) {
+            case ADD:
+                return createNumber(value1 + value2, maxLength);
+            case SUB:
+                return createNumber(value1 - value2, maxLength);
+            case MUL:
+                return createNumber(value1 * value2, maxLength);
+            case DIV:
+                return createNumber(value1 / value2, maxLength);
+            case MOD:
+                // same as JavaScript: the result has the sign of the dividend
+                return createNumber(value1 % value2, maxLength);
+            case LT:
+            case LTE:
+            case GT:
+            case GTE:
+                return compare(op, value1 < value2 ? -1 : value1 > value2 ? 1 : 0);
+            case EQ:
+            case REF_EQ:
+                return JsLiteral.getBoolean(value1 == value2);
+            case NEQ:
+            case REF_NEQ:
+                return JsLiteral.getBoolean(value1 != value2);
+        }
+
+        if (!isSafeInteger(value1) || !isSafeInteger(value2)) {
+            return null;
+        }
+        int int1 = toInt32(value1);
+        int shift = toInt32(value2) & 31;
+        switch (op) {
+            case BIT_AND:
+                return createNumber(int1 & toInt32(value2), maxLength);
+            case BIT_OR:
+                return createNumber(int1 | toInt32(value2), maxLength);
+            case BIT_XOR:
+                return createNumber(int1 ^ toInt32(value2), maxLength);
+            case SHL:
+                return createNumber(int1 << shift, maxLength);
+            case SHR:
+                return createNumber(int1 >> shift, maxLength);
+            case SHRU:
+                return createNumber((int1 & 0xFFFFFFFFL) >>> shift, maxLength);
+            default:
+                return null;
+        }
+    }
+
+    private static JsExpression compare(JsBinaryOperator op, int comparison) {
+        switch (op) {
+            case LT:
+                return JsLiteral.getBoolean(comparison < 0);
+            case LTE:
+                return JsLiteral.getBoolean(comparison <= 0);
+            case GT:
+                return JsLiteral.getBoolean(comparison > 0);
+            case GTE:
+                return JsLiteral.getBoolean(comparison >= 0);
+            default:
+                throw new IllegalArgumentException("Not a comparison: " + op);
+        }
+    }
+
+    // null if JavaScript converts operands before comparing them
+    @Nullable
+    private static Boolean isEqual(Object value1, Object value2, boolean strict) {
+        if (value1 instanceof CharSequence && value2 instanceof CharSequence) {
+            return value1.toString().contentEquals((CharSequence) value2);
+        }
+        if (value1.getClass() == value2.getClass()) {
+            return value1.equals(value2);
+        }
+        // null is only loosely equal to undefined
+        return strict || value1 == NULL || value2 == NULL ? Boolean.FALSE : null;
+    }
+
+    @Nullable
+    private static JsExpression createNumber(double value, int maxLength) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+
+        boolean negative = value < 0 || (value == 0 && 1 / value < 0);
+        Number number = toNumber(Math.abs(value));
+        if (number instanceof Double && getPrintedLength(value) > maxLength) {
+            return null;
+        }
+
+        JsNumberLiteral literal = new JsNumberLiteral(number);
+        return negative ? new JsPrefixOperation(JsUnaryOperator.NEG, literal) : literal;
+    }
+
+    private static Number toNumber(double value) {
+        if (value == Math.rint(value)) {
+            if (value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            if (value <= MAX_SAFE_INTEGER) {
+                return (long) value;
+            }
+        }
+        return value;
+    }
+
+    private static int getPrintedLength(double value) {
+        return String.valueOf(toNumber(Math.abs(value))).length() + (value < 0 ? 1 : 0);
+    }
+
+    private static boolean isSafeInteger(double value) {
+        return Math.abs(value) <= MAX_SAFE_INTEGER;
+    }
+
+    // ToInt32 of the specification, for values without the fractional part it is the low 32 bits
+    private static int toInt32(double value) {
+        return (int) (long) value;
+    }
+
+    // string conversion of the value, null if it differs from the Java one
+    @Nullable
+    private static CharSequence toJsString(Object value) {
+        if (value instanceof CharSequence) {
+            return (CharSequence) value;
+        }
+        if (value == NULL) {
+            return "null";
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number == Math.rint(number) && isSafeInteger(number) ? Long.toString((long) number) : null;
+        }
+        return value.toString();
+    }
+
+    private static String typeOf(Object value) {
+        if (value instanceof CharSequence) {
+            return "string";
+        }
+        if (value instanceof Double) {
+            return "number";
+        }
+        return value == NULL ? "object" : "boolean";
+    }
+
+    private static boolean isTruthy(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Double) {
+            return (Double) value != 0;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() != 0;
+        }
+        return false;
+    }
+
+    /**
+     * Returns Double, CharSequence, Boolean or NULL for a literal that can be evaluated and dropped, null otherwise.
+     */
+    @Nullable
+    private static Object constantValue(@Nullable JsExpression expression) {
+        if (expression instanceof JsNumberLiteral) {
+            return numberValue((JsNumberLiteral) expression, false);
+        }
+        if (expression instanceof JsPrefixOperation) {
+            JsPrefixOperation operation = (JsPrefixOperation) expression;
+            if (operation.getOperator() == JsUnaryOperator.NEG && operation.getArg() instanceof JsNumberLiteral) {
+                return numberValue((JsNumberLiteral) operation.getArg(), true);
+            }
+            return null;
+        }
+        if (expression instanceof JsStringLiteral) {
+            JsStringLiteral literal = (JsStringLiteral) expression;
+            // text of a quoted literal is printed as is, it is the value unless it has escape sequences
+            return literal.isUnescaped() || !contains(literal.getValue(), '\\') ? literal.getValue() : null;
+        }
+        if (expression instanceof JsLiteral.JsBooleanLiteral) {
+            return ((JsLiteral.JsBooleanLiteral) expression).getValue();
+        }
+        if (expression instanceof JsNullLiteral) {
+            return NULL;
+        }
+        return null;
+    }
+
+    private static boolean contains(CharSequence chars, char c) {
+        for (int i = 0, n = chars.length(); i < n; i++) {
+            if (chars.charAt(i) == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static Double numberValue(JsNumberLiteral literal, boolean negate) {
+        double value = literal.getValue().doubleValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return negate ? -value : value;
+    }
+
+    private void setReplacement(JsNode node, @Nullable JsExpression result) {
+        if (result != null) {
+            replacement = withSource(node, result);
+        }
+    }
+
+    // returns the result, or its copy if it's a shared literal that gets the source
+    private static JsExpression withSource(JsNode node, JsExpression result) {
+        // boolean literals are shared, an operand that is the result keeps its own source, it can be shared too
+        if (result.getSource() == null && node.getSource() != null && !(result instanceof JsLiteral.JsBooleanLiteral) &&
+            !isOperand(node, result)) {
+            result = JsLeafFactory.unshared(result);
+            result.setSource(node.getSource());
+        }
+        return result;
+    }
+
+    private static boolean isOperand(JsNode node, JsExpression expression) {
+        if (node instanceof JsBinaryOperation) {
+            JsBinaryOperation operation = (JsBinaryOperation) node;
+            return operation.getArg1() == expression || operation.getArg2() == expression;
+        }
+        return node instanceof JsUnaryOperation && ((JsUnaryOperation) node).getArg() == expression;
+    }
+
+    /**
+     * Returns the statement to use instead of the given one: the taken branch and declarations of variables of the dropped one,
+     * {@link JsStatement#EMPTY} if nothing is left, or null if the dropped code can't be removed.
+     */
+    @Nullable
+    private static JsNode prune(JsStatement statement, @Nullable JsNode taken, @Nullable JsNode dropped) {
+        JsVars vars = null;
+        if (dropped != null) {
+            HoistedDeclarationCollector collector = new HoistedDeclarationCollector();
+            collector.accept(dropped);
+            if (collector.declaresFunction) {
+                return null;
+            }
+            vars = collector.createVars(statement.getSource());
+        }
+
+        if (vars == null) {
+            return taken == null ? JsStatement.EMPTY : taken;
+        }
+        if (taken == null) {
+            return vars;
+        }
+
+        JsBlock block = new JsBlock();
+        if (taken instanceof JsBlock) {
+            block.getStatements().addAll(((JsBlock) taken).getStatements());
+        }
+        else {
+            block.getStatements().add(taken);
+        }
+        block.getStatements().add(vars);
+        return block;
+    }
+}
@@ -12,12 +12,38 @@ import com.google.dart.compiler.backend.js.ast.*;
  */
 public class JsConstructExpressionVisitor extends RecursiveJsVisitor {
     public static boolean exec(JsExpression expression) {
-        if (JsPrecedenceVisitor.exec(expression) < JsPrecedenceVisitor.PRECEDENCE_NEW) {
+        if (expression.getPrecedence() < JsExpression.PRECEDENCE_NEW) {
             return true;
         }
-        JsConstructExpressionVisitor visitor = new JsConstructExpressionVisitor();
-        visitor.accept(expression);
-        return visitor.containsInvocation;
+
+        // walk down the left spine without allocation, only unknown expressions (chameleons) need the visitor
+        while (true) {
+            if (expression instanceof JsInvocation) {
+                return true;
+            }
+
+            JsExpression next;
+            if (expression instanceof JsNameRef) {
+                next = ((JsNameRef) expression).getQualifier();
+            }
+            else if (expression instanceof JsArrayAccess) {
+                next = ((JsArrayAccess) expression).getArrayExpression();
+            }
+            else if (expression instanceof JsLiteral || expression instanceof JsNew) {
+                return false;
+            }
+            else {
+                JsConstructExpressionVisitor visitor = new JsConstructExpressionVisitor();
+                visitor.accept(expression);
+                return visitor.containsInvocation;
+            }
+
+            // Only visit expressions that won't automatically be surrounded by parentheses
+            if (next == null || next.getPrecedence() < JsExpression.PRECEDENCE_NEW) {
+                return false;
+            }
+            expression = next;
+        }
     }
 
     private boolean containsInvocation;
@@ -83,10 +109,10 @@ public class JsConstructExpressionVisitor extends RecursiveJsVisitor {
         // reproducible in jdk1.6.0_02.
         if (node instanceof JsExpression) {
             JsExpression expression = (JsExpression) node;
-            int precedence = JsPrecedenceVisitor.exec(expression);
+            int precedence = expression.getPrecedence();
             // Only visit expressions that won't automatically be surrounded by
             // parentheses
-            if (precedence < JsPrecedenceVisitor.PRECEDENCE_NEW) {
+            if (precedence < JsExpression.PRECEDENCE_NEW) {
                 return;
             }
         }
@@ -0,0 +1,329 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.*;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+
+import java.util.*;
+
+/**
+ * Removes unreachable statements and top-level functions and variables that aren't referenced.
+ * <p/>
+ * Statements following a {@code return}, {@code throw}, {@code break} or {@code continue} in the same list are removed,
+ * except for function declarations, the variables they declare are kept as a {@code var} statement without initializers.
+ * <p/>
+ * Then references between top-level names are indexed: a named function or a variable initialized by a literal
+ * (functions, object and array literals of literals included) is removed if it isn't reachable from the rest of the
+ * program or from the retained names. A name is referenced by an unqualified reference, a reference qualified by
+ * {@code this} or a global object, or a string index of one of them. Nothing is removed at top-level if the program
+ * uses {@code eval} or {@code Function}, or indexes a global object by a computed name.
+ */
+public final class JsDeadCodeEliminator extends RecursiveJsVisitor {
+    private static final Set<String> GLOBAL_OBJECTS = new THashSet<String>(Arrays.asList("window", "self", "global", "globalThis"));
+    // can access any global by a computed name
+    private static final Set<String> DYNAMIC_ACCESSORS = new THashSet<String>(Arrays.asList("eval", "Function"));
+
+    private JsDeadCodeEliminator() {
+        super(true);
+    }
+
+    /**
+     * @param retainedNames top-level names used from outside of the program, they and names they reference are kept
+     */
+    public static void exec(JsBlock program, Collection<String> retainedNames) {
+        new JsDeadCodeEliminator().accept(program);
+
+        ReferenceIndex index = new ReferenceIndex();
+        index.indexStatements(program.getStatements());
+        if (!index.hasDynamicAccess) {
+            removeUnused(program.getStatements(), index.markLive(retainedNames));
+        }
+    }
+
+    @Override
+    public void visitBlock(JsBlock block) {
+        removeUnreachable(block.getStatements());
+        super.visitBlock(block);
+    }
+
+    @Override
+    public void visitCase(JsCase x) {
+        removeUnreachable(x.getStatements());
+        super.visitCase(x);
+    }
+
+    @Override
+    public void visitDefault(JsDefault x) {
+        removeUnreachable(x.getStatements());
+        super.visitDefault(x);
+    }
+
+    private static void removeUnreachable(List<JsNode> statements) {
+        for (int i = 0, n = statements.size() - 1; i < n; i++) {
+            if (!isAbrupt(statements.get(i))) {
+                continue;
+            }
+
+            List<JsNode> unreachable = statements.subList(i + 1, statements.size());
+            List<JsNode> hoisted = new ArrayList<JsNode>();
+            HoistedDeclarationCollector collector = new HoistedDeclarationCollector();
+            for (JsNode statement : unreachable) {
+                if (statement instanceof JsFunction && ((JsFunction) statement).getName() != null) {
+                    hoisted.add(statement);
+                    continue;
+                }
+
+                HoistedDeclarationCollector statementCollector = new HoistedDeclarationCollector();
+                statementCollector.accept(statement);
+                if (statementCollector.declaresFunction) {
+                    // declares a function in a block, keep it as is
+                    hoisted.add(statement);
+                }
+                else {
+                    collector.names.addAll(statementCollector.names);
+                }
+            }
+
+            JsVars vars = collector.createVars(unreachable.get(0).getSource());
+            unreachable.clear();
+            if (vars != null) {
+                statements.add(vars);
+            }
+            statements.addAll(hoisted);
+            return;
+        }
+    }
+
+    // statement after it in the same list can't be reached
+    private static boolean isAbrupt(JsNode statement) {
+        if (statement instanceof JsReturn || statement instanceof JsThrow ||
+            statement instanceof JsBreak || statement instanceof JsContinue) {
+            return true;
+        }
+        if (statement instanceof JsBlock) {
+            for (JsNode child : ((JsBlock) statement).getStatements()) {
+                if (isAbrupt(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (statement instanceof JsIf) {
+            JsIf ifStatement = (JsIf) statement;
+            return ifStatement.getElse() != null && isAbrupt(ifStatement.getThen()) && isAbrupt(ifStatement.getElse());
+        }
+        // break of a label statement continues after it
+        return false;
+    }
+
+    private static void removeUnused(List<JsNode> statements, Set<String> live) {
+        int size = 0;
+        for (JsNode statement : statements) {
+            if (statement instanceof JsFunction) {
+                String name = ((JsFunction) statement).getName();
+                if (name != null && !live.contains(name)) {
+                    continue;
+                }
+            }
+            else if (statement instanceof JsVars) {
+                statement = removeUnused((JsVars) statement, live);
+                if (statement == null) {
+                    continue;
+                }
+            }
+            else if (statement instanceof JsBlock && ((JsBlock) statement).isGlobalBlock()) {
+                removeUnused(((JsBlock) statement).getStatements(), live);
+            }
+            statements.set(size++, statement);
+        }
+        statements.subList(size, statements.size()).clear();
+    }
+
+    // every declaration of a name that isn't live is removable
+    private static JsVars removeUnused(JsVars vars, Set<String> live) {
+        List<JsVar> used = null;
+        List<JsVar> list = vars.getVars();
+        for (int i = 0, n = list.size(); i < n; i++) {
+            JsVar var = list.get(i);
+            if (live.contains(var.getName())) {
+                if (used != null) {
+                    used.add(var);
+                }
+            }
+            else if (used == null) {
+                // the list can be immutable, copy it
+                used = new ArrayList<JsVar>(list.subList(0, i));
+            }
+        }
+
+        if (used == null) {
+            return vars;
+        }
+        if (used.isEmpty()) {
+            return null;
+        }
+        JsVars result = new JsVars(used, vars.isMultiline());
+        result.setSource(vars.getSource());
+        return result;
+    }
+
+    private static boolean isGlobalObject(JsExpression expression) {
+        if (expression instanceof JsLiteral.JsThisRef) {
+            return true;
+        }
+        if (expression instanceof JsNameRef) {
+            JsNameRef nameRef = (JsNameRef) expression;
+            return nameRef.getQualifier() == null && GLOBAL_OBJECTS.contains(nameRef.getName());
+        }
+        return false;
+    }
+
+    private static boolean isSideEffectFree(JsExpression expression) {
+        if (expression instanceof JsObjectLiteral) {
+            for (JsPropertyInitializer initializer : ((JsObjectLiteral) expression).getPropertyInitializers()) {
+                if (!isSideEffectFree(initializer.getValueExpr())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (expression instanceof JsArrayLiteral) {
+            for (JsExpression element : ((JsArrayLiteral) expression).getExpressions()) {
+                if (element != null && !isSideEffectFree(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (expression instanceof JsNameRef) {
+            JsNameRef nameRef = (JsNameRef) expression;
+            return nameRef.getQualifier() == null && "undefined".equals(nameRef.getName());
+        }
+        return expression instanceof JsLiteral;
+    }
+
+    // names referenced by each removable top-level declaration and by the rest of the program
+    private static final class ReferenceIndex extends RecursiveJsVisitor {
+        private final Map<String, Set<String>> references = new THashMap<String, Set<String>>();
+        private final Set<String> roots = new THashSet<String>();
+        private Set<String> current;
+
+        boolean hasDynamicAccess;
+
+        ReferenceIndex() {
+            // deep expressions are visited without recursion, current is only changed between accept calls
+            super(true);
+        }
+
+        void indexStatements(List<JsNode> statements) {
+            for (JsNode statement : statements) {
+                if (statement instanceof JsFunction && ((JsFunction) statement).getName() != null) {
+                    JsFunction function = (JsFunction) statement;
+                    current = getReferences(function.getName());
+                    accept(function.getBody());
+                }
+                else if (statement instanceof JsVars) {
+                    for (JsVar var : ((JsVars) statement).getVars()) {
+                        JsExpression initializer = var.getInitExpression();
+                        if (initializer == null || isSideEffectFree(initializer)) {
+                            current = getReferences(var.getName());
+                        }
+                        else {
+                            // the initializer must be evaluated, so the variable is kept
+                            roots.add(var.getName());
+                            current = roots;
+                        }
+                        if (initializer != null) {
+                            accept(initializer);
+                        }
+                    }
+                }
+                else if (statement instanceof JsBlock && ((JsBlock) statement).isGlobalBlock()) {
+                    indexStatements(((JsBlock) statement).getStatements());
+                }
+                else {
+                    current = roots;
+                    accept(statement);
+                }
+            }
+        }
+
+        private Set<String> getReferences(String name) {
+            Set<String> names = references.get(name);
+            if (names == null) {
+                names = new THashSet<String>();
+                references.put(name, names);
+            }
+            return names;
+        }
+
+        Set<String> markLive(Collection<String> retainedNames) {
+            Set<String> live = new THashSet<String>();
+            List<String> queue = new ArrayList<String>();
+            for (String name : roots) {
+                if (live.add(name)) {
+                    queue.add(name);
+                }
+            }
+            for (String name : retainedNames) {
+                if (live.add(name)) {
+                    queue.add(name);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                Set<String> names = references.get(queue.remove(queue.size() - 1));
+                if (names != null) {
+                    for (String name : names) {
+                        if (live.add(name)) {
+                            queue.add(name);
+                        }
+                    }
+                }
+            }
+            return live;
+        }
+
+        @Override
+        public void visitNameRef(JsNameRef nameRef) {
+            String name = nameRef.getName();
+            JsExpression qualifier = nameRef.getQualifier();
+            if (name != null && (qualifier == null || isGlobalObject(qualifier))) {
+                current.add(name);
+                if (DYNAMIC_ACCESSORS.contains(name)) {
+                    hasDynamicAccess = true;
+                }
+            }
+            super.visitNameRef(nameRef);
+        }
+
+        @Override
+        public void visitArrayAccess(JsArrayAccess x) {
+            if (isGlobalObject(x.getArrayExpression())) {
+                JsExpression index = x.getIndexExpression();
+                if (index instanceof JsStringLiteral) {
+                    JsStringLiteral literal = (JsStringLiteral) index;
+                    String name = literal.getValue().toString();
+                    if (!literal.isUnescaped() && name.indexOf('\\') != -1) {
+                        hasDynamicAccess = true;
+                    }
+                    current.add(name);
+                }
+                else if (!(index instanceof JsNumberLiteral)) {
+                    hasDynamicAccess = true;
+                }
+            }
+            super.visitArrayAccess(x);
+        }
+
+        @Override
+        public void visitPropertyInitializer(JsPropertyInitializer x) {
+            // label is a property name, not a variable
+            JsExpression label = x.getLabelExpr();
+            if (label != null && !(label instanceof JsNameRef)) {
+                accept(label);
+            }
+            accept(x.getValueExpr());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.JsNode;
+import com.google.dart.compiler.backend.js.ast.JsStringLiteral;
+import com.google.dart.compiler.util.TextOutputImpl;
+
+/**
+ * Prints a node for diagnostics with a limited length and depth, so {@code toString()} of a whole program stays cheap.
+ * Printing stops as soon as the length limit is reached, nodes nested deeper than the depth limit are printed as "...".
+ * <p/>
+ * Left-nested binary operations and qualifier chains are printed in a loop, so their nested nodes don't count for the depth
+ * limit (the length limit still applies).
+ */
+public class JsDebugStringGenerationVisitor extends JsToStringGenerationVisitor {
+    public static final int DEFAULT_MAX_LENGTH = 2048;
+    public static final int DEFAULT_MAX_DEPTH = 64;
+
+    private static final String ELLIPSIS = "...";
+
+    private static final class LimitReachedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    // thrown only to unwind the printer, so a shared instance without stack trace is enough
+    private static final LimitReachedException LIMIT_REACHED = new LimitReachedException();
+
+    private static final class LimitedTextOutput extends TextOutputImpl {
+        private final int maxLength;
+
+        LimitedTextOutput(int maxLength) {
+            super(false, new StringBuilder(Math.min(maxLength, DEFAULT_MAX_LENGTH) + 16));
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        protected void produced() {
+            if (getPosition() > maxLength) {
+                throw LIMIT_REACHED;
+            }
+        }
+    }
+
+    private final int maxLength;
+    private final int maxDepth;
+    private int depth;
+
+    private JsDebugStringGenerationVisitor(LimitedTextOutput out, int maxDepth) {
+        super(out);
+        maxLength = out.maxLength;
+        this.maxDepth = maxDepth;
+    }
+
+    public static String toDebugString(JsNode node) {
+        return toDebugString(node, DEFAULT_MAX_LENGTH, DEFAULT_MAX_DEPTH);
+    }
+
+    public static String toDebugString(JsNode node, int maxLength, int maxDepth) {
+        if (maxLength < 0 || maxDepth < 0) {
+            throw new IllegalArgumentException("Limits must be >= 0");
+        }
+
+        LimitedTextOutput out = new LimitedTextOutput(maxLength);
+        try {
+            new JsDebugStringGenerationVisitor(out, maxDepth).accept(node);
+            return out.toString();
+        }
+        catch (LimitReachedException ignored) {
+            StringBuilder builder = out.getBuilder();
+            builder.setLength(maxLength);
+            return builder.append(ELLIPSIS).toString();
+        }
+    }
+
+    @Override
+    public <T extends JsNode> void accept(T node) {
+        if (depth == maxDepth) {
+            p.print(ELLIPSIS);
+            return;
+        }
+
+        depth++;
+        super.accept(node);
+        depth--;
+    }
+
+    @Override
+    public void visitString(JsStringLiteral stringLiteral) {
+        int remaining = maxLength - p.getPosition();
+        CharSequence value = stringLiteral.getValue();
+        if (value.length() > remaining) {
+            // don't escape a huge literal only to cut it, each char takes at least one char of the output
+            super.visitString(new JsStringLiteral(value.subSequence(0, remaining + 1), stringLiteral.getQuote()));
+        }
+        else {
+            super.visitString(stringLiteral);
+        }
+    }
+}
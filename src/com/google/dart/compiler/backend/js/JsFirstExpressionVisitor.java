@@ -36,9 +36,45 @@ public class JsFirstExpressionVisitor extends RecursiveJsVisitor {
             return false;
         }
 
-        JsFirstExpressionVisitor visitor = new JsFirstExpressionVisitor();
-        visitor.accept(node);
-        return visitor.needsParentheses;
+        // walk down the left spine without allocation, only unknown nodes (statements, chameleons) need the visitor
+        while (true) {
+            if (node instanceof JsFunction || node instanceof JsObjectLiteral) {
+                return true;
+            }
+
+            JsNode next;
+            if (node instanceof JsNameRef) {
+                next = ((JsNameRef) node).getQualifier();
+            }
+            else if (node instanceof JsInvocation) {
+                next = ((JsInvocation) node).getQualifier();
+            }
+            else if (node instanceof JsArrayAccess) {
+                next = ((JsArrayAccess) node).getArrayExpression();
+            }
+            else if (node instanceof JsBinaryOperation) {
+                next = ((JsBinaryOperation) node).getArg1();
+            }
+            else if (node instanceof JsConditional) {
+                next = ((JsConditional) node).getTestExpression();
+            }
+            else if (node instanceof JsPostfixOperation) {
+                next = ((JsPostfixOperation) node).getArg();
+            }
+            else if (node instanceof JsLiteral || node instanceof JsNew || node instanceof JsPrefixOperation) {
+                return false;
+            }
+            else {
+                JsFirstExpressionVisitor visitor = new JsFirstExpressionVisitor();
+                visitor.accept(node);
+                return visitor.needsParentheses;
+            }
+
+            if (next == null) {
+                return false;
+            }
+            node = next;
+        }
     }
 
     private boolean needsParentheses = false;
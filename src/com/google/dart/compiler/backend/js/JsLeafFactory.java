@@ -0,0 +1,97 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.JsExpression;
+import com.google.dart.compiler.backend.js.ast.JsNumberLiteral;
+import com.google.dart.compiler.backend.js.ast.JsStringLiteral;
+import gnu.trove.THashMap;
+
+import java.util.Map;
+
+/**
+ * Shares leaf nodes of an AST like {@link com.google.dart.compiler.backend.js.ast.JsLiteral#TRUE}: number and string literals
+ * with the same value (and quote) are the same node. The factory is the intern table, use one per compilation (e.g. one
+ * for all trees read by {@link JsAstReader}, or one for the code that builds the AST), nodes it created stay valid after it's dropped.
+ * <p/>
+ * Only literals without source info are interned, there is no side table of source infos of shared nodes. A shared literal
+ * rejects {@code setSource}: sharing is dropped where a source is needed, a literal that needs source info is created by
+ * its constructor, or copied by {@link #unshared(JsExpression)}. Name references and parameters are renamed in place
+ * (see {@link JsNameMinifier}), so they aren't shared.
+ */
+public final class JsLeafFactory {
+    private final Map<Number, JsNumberLiteral> numbers = new THashMap<Number, JsNumberLiteral>();
+    private final Map<String, JsStringLiteral> singleQuoted = new THashMap<String, JsStringLiteral>();
+    private final Map<String, JsStringLiteral> doubleQuoted = new THashMap<String, JsStringLiteral>();
+    private final Map<String, JsStringLiteral> unescaped = new THashMap<String, JsStringLiteral>();
+
+    /**
+     * Values of different types are different literals, 1 and 1.0 are printed differently.
+     */
+    public JsNumberLiteral number(Number value) {
+        JsNumberLiteral literal = numbers.get(value);
+        if (literal == null) {
+            literal = new JsNumberLiteral(value);
+            literal.markShared();
+            numbers.put(value, literal);
+        }
+        return literal;
+    }
+
+    public JsStringLiteral string(CharSequence value) {
+        return string(value, '\'');
+    }
+
+    /**
+     * The value is copied if it isn't a string, a shared literal can't have a mutable value.
+     */
+    public JsStringLiteral string(CharSequence value, char quote) {
+        Map<String, JsStringLiteral> literals;
+        switch (quote) {
+            case '\'':
+                literals = singleQuoted;
+                break;
+            case '"':
+                literals = doubleQuoted;
+                break;
+            case JsStringLiteral.UNESCAPED:
+                literals = unescaped;
+                break;
+            default:
+                return new JsStringLiteral(value, quote);
+        }
+
+        String string = value.toString();
+        JsStringLiteral literal = literals.get(string);
+        if (literal == null) {
+            literal = new JsStringLiteral(string, quote);
+            literal.markShared();
+            literals.put(string, literal);
+        }
+        return literal;
+    }
+
+    public JsStringLiteral unescapedString(CharSequence value) {
+        return string(value, JsStringLiteral.UNESCAPED);
+    }
+
+    /**
+     * Returns the expression, or a copy of it if it's a shared literal, so its source can be set.
+     */
+    public static JsExpression unshared(JsExpression expression) {
+        if (expression instanceof JsNumberLiteral) {
+            JsNumberLiteral literal = (JsNumberLiteral) expression;
+            return literal.isShared() ? new JsNumberLiteral(literal.getValue()) : literal;
+        }
+        if (expression instanceof JsStringLiteral) {
+            JsStringLiteral literal = (JsStringLiteral) expression;
+            return literal.isShared() ? new JsStringLiteral(literal.getValue(), literal.getQuote()) : literal;
+        }
+        return expression;
+    }
+
+    /**
+     * Number of shared literals.
+     */
+    public int size() {
+        return numbers.size() + singleQuoted.size() + doubleQuoted.size() + unescaped.size();
+    }
+}
@@ -0,0 +1,366 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.*;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Renames local variables, parameters and catch parameters to the shortest names that don't clash, the most used
+ * names get the shortest ones.
+ * <p/>
+ * Scopes are computed from the tree (functions and catch clauses), not taken from {@link JsScope}, so names declared
+ * by the code generator and by hand are handled the same way. Top-level names, function names and names visible
+ * to a direct {@code eval} call are not renamed. A name is never renamed to a keyword or a reserved global symbol,
+ * or to a name that would shadow a variable used in the scope.
+ * <p/>
+ * Nodes are renamed in place.
+ */
+public final class JsNameMinifier extends RecursiveJsVisitor {
+    private static final String FIRST_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ$_";
+    private static final String NEXT_CHARS = FIRST_CHARS + "0123456789";
+
+    private static final class Scope {
+        @Nullable
+        final Scope parent;
+        // null for the top-level scope and catch clauses
+        @Nullable
+        final JsFunction function;
+        final boolean isCatch;
+
+        final Map<String, Binding> bindings = new THashMap<String, Binding>();
+        final List<Binding> declarationOrder = new ArrayList<Binding>();
+
+        // free names and bindings of outer scopes used in this scope or in scopes nested in it
+        final Set<String> usedFreeNames = new THashSet<String>();
+        final Set<Binding> usedOuterBindings = new THashSet<Binding>();
+
+        boolean hasEval;
+
+        Scope(@Nullable Scope parent, @Nullable JsFunction function, boolean isCatch) {
+            this.parent = parent;
+            this.function = function;
+            this.isCatch = isCatch;
+        }
+
+        Binding declare(String name, @Nullable JsNode site, boolean renamable) {
+            Binding binding = bindings.get(name);
+            if (binding == null) {
+                binding = new Binding(name, this);
+                bindings.put(name, binding);
+                declarationOrder.add(binding);
+            }
+            if (site != null) {
+                binding.sites.add(site);
+                binding.useCount++;
+            }
+            if (!renamable) {
+                binding.renamable = false;
+            }
+            return binding;
+        }
+
+        boolean isFixed(String name) {
+            Binding binding = bindings.get(name);
+            return binding != null && (!binding.renamable || hasEval);
+        }
+    }
+
+    private static final class Binding {
+        final String name;
+        final Scope scope;
+        final List<JsNode> sites = new ArrayList<JsNode>(2);
+        // scopes between uses of the binding and its scope, a new name must not be declared fixed in any of them
+        final Set<Scope> crossedScopes = new THashSet<Scope>();
+        int useCount;
+        boolean renamable;
+        String newName;
+
+        Binding(String name, Scope scope) {
+            this.name = name;
+            this.scope = scope;
+            renamable = scope.parent != null;
+            newName = name;
+        }
+    }
+
+    private final List<Scope> scopes = new ArrayList<Scope>();
+    private final List<Scope> referenceScopes = new ArrayList<Scope>();
+    private final List<JsNameRef> references = new ArrayList<JsNameRef>();
+    private Scope current;
+
+    private JsNameMinifier() {
+        // deep expressions are visited without recursion, nested scopes are visited by acceptNow
+        super(true);
+        current = createScope(null, null, false);
+    }
+
+    public static void exec(JsNode program) {
+        JsNameMinifier minifier = new JsNameMinifier();
+        minifier.accept(program);
+        minifier.resolveReferences();
+        minifier.assignNames();
+        minifier.rename();
+    }
+
+    private Scope createScope(@Nullable Scope parent, @Nullable JsFunction function, boolean isCatch) {
+        Scope scope = new Scope(parent, function, isCatch);
+        scopes.add(scope);
+        return scope;
+    }
+
+    private Scope getFunctionScope() {
+        Scope scope = current;
+        while (scope.isCatch) {
+            scope = scope.parent;
+        }
+        return scope;
+    }
+
+    private void declareVar(String name, JsNode site) {
+        Scope functionScope = getFunctionScope();
+        Binding binding = functionScope.declare(name, site, true);
+        for (Scope scope = current; scope != functionScope; scope = scope.parent) {
+            Binding catchBinding = scope.bindings.get(name);
+            if (catchBinding != null) {
+                // "var e" inside of "catch (e)" initializes the catch parameter, keep both as is
+                catchBinding.renamable = false;
+                binding.renamable = false;
+            }
+            // a catch parameter must not get the new name of the variable either
+            scope.usedOuterBindings.add(binding);
+            binding.crossedScopes.add(scope);
+        }
+    }
+
+    @Override
+    public void visitFunction(JsFunction x) {
+        if (x.getName() != null) {
+            current.declare(x.getName(), null, false);
+        }
+
+        Scope scope = createScope(current, x, false);
+        for (JsParameter parameter : x.getParameters()) {
+            scope.declare(parameter.getName(), parameter, true);
+        }
+
+        Scope outer = current;
+        current = scope;
+        acceptNow(x.getBody());
+        current = outer;
+    }
+
+    @Override
+    public void visitCatch(JsCatch x) {
+        Scope scope = createScope(current, null, true);
+        scope.declare(x.getParameter().getName(), x.getParameter(), true);
+
+        Scope outer = current;
+        current = scope;
+        if (x.getCondition() != null) {
+            acceptNow(x.getCondition());
+        }
+        acceptNow(x.getBody());
+        current = outer;
+    }
+
+    @Override
+    public void visit(JsVar x) {
+        declareVar(x.getName(), x);
+        super.visit(x);
+    }
+
+    @Override
+    public void visitForIn(JsForIn x) {
+        if (x.getIterVarName() != null) {
+            declareVar(x.getIterVarName(), x);
+        }
+        super.visitForIn(x);
+    }
+
+    @Override
+    public void visitNameRef(JsNameRef nameRef) {
+        if (nameRef.getQualifier() == null) {
+            if (nameRef.getName() != null) {
+                referenceScopes.add(current);
+                references.add(nameRef);
+            }
+        }
+        else {
+            super.visitNameRef(nameRef);
+        }
+    }
+
+    @Override
+    public void visitInvocation(JsInvocation invocation) {
+        JsExpression qualifier = invocation.getQualifier();
+        if (qualifier instanceof JsNameRef) {
+            JsNameRef nameRef = (JsNameRef) qualifier;
+            if (nameRef.getQualifier() == null && "eval".equals(nameRef.getName())) {
+                // direct eval can access all names visible here
+                for (Scope scope = current; scope != null; scope = scope.parent) {
+                    scope.hasEval = true;
+                }
+            }
+        }
+        super.visitInvocation(invocation);
+    }
+
+    @Override
+    public void visitPropertyInitializer(JsPropertyInitializer x) {
+        // label is a property name, not a variable
+        JsExpression label = x.getLabelExpr();
+        if (label != null && !(label instanceof JsNameRef)) {
+            accept(label);
+        }
+        accept(x.getValueExpr());
+    }
+
+    private void resolveReferences() {
+        for (int i = 0, n = references.size(); i < n; i++) {
+            JsNameRef reference = references.get(i);
+            String name = reference.getName();
+            Binding binding = null;
+            for (Scope scope = referenceScopes.get(i); scope != null; scope = scope.parent) {
+                binding = scope.bindings.get(name);
+                if (binding != null) {
+                    break;
+                }
+            }
+
+            if (binding == null) {
+                for (Scope scope = referenceScopes.get(i); scope != null; scope = scope.parent) {
+                    scope.usedFreeNames.add(name);
+                }
+            }
+            else {
+                binding.sites.add(reference);
+                binding.useCount++;
+                for (Scope scope = referenceScopes.get(i); scope != binding.scope; scope = scope.parent) {
+                    scope.usedOuterBindings.add(binding);
+                    binding.crossedScopes.add(scope);
+                }
+            }
+        }
+    }
+
+    private void assignNames() {
+        // outer scopes are created first, so names of outer bindings are known when an inner scope is processed
+        for (Scope scope : scopes) {
+            if (scope.hasEval) {
+                continue;
+            }
+
+            List<Binding> renamable = new ArrayList<Binding>();
+            for (Binding binding : scope.declarationOrder) {
+                if (binding.renamable) {
+                    renamable.add(binding);
+                }
+            }
+            if (renamable.isEmpty()) {
+                continue;
+            }
+
+            // stable, so bindings used equally often keep declaration order
+            Collections.sort(renamable, new Comparator<Binding>() {
+                @Override
+                public int compare(Binding b1, Binding b2) {
+                    return b2.useCount - b1.useCount;
+                }
+            });
+
+            Set<String> taken = new THashSet<String>(scope.usedFreeNames);
+            for (Binding binding : scope.usedOuterBindings) {
+                taken.add(binding.newName);
+            }
+            for (Binding binding : scope.declarationOrder) {
+                if (!binding.renamable) {
+                    taken.add(binding.name);
+                }
+            }
+
+            // names before this one are taken in the scope
+            int firstCandidate = 0;
+            for (Binding binding : renamable) {
+                for (int index = firstCandidate; ; index++) {
+                    String candidate = generateName(index);
+                    if (!taken.contains(candidate) && !isReserved(candidate) && isFreeInCrossedScopes(binding, candidate)) {
+                        binding.newName = candidate;
+                        taken.add(candidate);
+                        break;
+                    }
+                }
+
+                String candidate;
+                while (taken.contains(candidate = generateName(firstCandidate)) || isReserved(candidate)) {
+                    firstCandidate++;
+                }
+            }
+
+            if (scope.function != null) {
+                JsScope functionScope = scope.function.getScope();
+                for (Binding binding : renamable) {
+                    functionScope.declareName(binding.newName);
+                }
+            }
+        }
+    }
+
+    private static boolean isFreeInCrossedScopes(Binding binding, String name) {
+        for (Scope scope : binding.crossedScopes) {
+            if (scope.isFixed(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isReserved(String name) {
+        return JsReservedIdentifiers.isReserved(name);
+    }
+
+    /**
+     * Returns the name with the given index in the sequence a, b, ..., _, aa, ba, ...
+     */
+    static String generateName(int index) {
+        StringBuilder builder = new StringBuilder(4);
+        builder.append(FIRST_CHARS.charAt(index % FIRST_CHARS.length()));
+        index /= FIRST_CHARS.length();
+        while (index > 0) {
+            index--;
+            builder.append(NEXT_CHARS.charAt(index % NEXT_CHARS.length()));
+            index /= NEXT_CHARS.length();
+        }
+        return builder.toString();
+    }
+
+    private void rename() {
+        for (Scope scope : scopes) {
+            for (Binding binding : scope.declarationOrder) {
+                if (binding.newName.equals(binding.name)) {
+                    continue;
+                }
+
+                for (JsNode site : binding.sites) {
+                    if (site instanceof JsNameRef) {
+                        ((JsNameRef) site).setName(binding.newName);
+                    }
+                    else if (site instanceof JsParameter) {
+                        ((JsParameter) site).setName(binding.newName);
+                    }
+                    else if (site instanceof JsVar) {
+                        ((JsVar) site).setName(binding.newName);
+                    }
+                    else if (site instanceof JsForIn) {
+                        ((JsForIn) site).setIterVarName(binding.newName);
+                    }
+                    else {
+                        throw new IllegalStateException("Unexpected declaration: " + site);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@
 
 package com.google.dart.compiler.backend.js;
 
+import com.google.dart.compiler.util.WordMatcher;
 import gnu.trove.THashSet;
 
 import java.util.Collections;
@@ -15,6 +16,15 @@ import java.util.Set;
 public class JsReservedIdentifiers {
     public static final Set<String> reservedGlobalSymbols;
 
+    /**
+     * Keywords, future reserved words (including the strict mode ones) and literals, can't be used as identifiers.
+     */
+    public static final Set<String> keywords;
+
+    private static final WordMatcher reservedGlobalSymbolMatcher;
+    private static final WordMatcher keywordMatcher;
+    private static final WordMatcher reservedMatcher;
+
     static {
         String[] commonBuiltins = new String[] {
                 // 15.1.1 Value Properties of the Global Object
@@ -144,8 +154,50 @@ public class JsReservedIdentifiers {
 
         reservedGlobalSymbols = new THashSet<String>(commonBuiltins.length);
         Collections.addAll(reservedGlobalSymbols, commonBuiltins);
+
+        String[] keywordList = new String[] {
+                // 7.6.1.1 Keywords
+                "break", "case", "catch", "continue", "debugger", "default", "delete", "do", "else", "finally", "for",
+                "function", "if", "in", "instanceof", "new", "return", "switch", "this", "throw", "try", "typeof", "var",
+                "void", "while", "with",
+
+                // 7.6.1.2 Future Reserved Words
+                "class", "const", "enum", "export", "extends", "import", "super",
+                "implements", "interface", "let", "package", "private", "protected", "public", "static", "yield",
+
+                // 7.8 Literals
+                "null", "true", "false",
+        };
+
+        keywords = new THashSet<String>(keywordList.length);
+        Collections.addAll(keywords, keywordList);
+
+        reservedGlobalSymbolMatcher = new WordMatcher(reservedGlobalSymbols);
+        keywordMatcher = new WordMatcher(keywords);
+        Set<String> reserved = new THashSet<String>(reservedGlobalSymbols);
+        reserved.addAll(keywords);
+        reservedMatcher = new WordMatcher(reserved);
     }
 
     private JsReservedIdentifiers() {
     }
+
+    public static boolean isKeyword(CharSequence name) {
+        return keywordMatcher.matches(name);
+    }
+
+    public static boolean isReservedGlobalSymbol(CharSequence name) {
+        return reservedGlobalSymbolMatcher.matches(name);
+    }
+
+    /**
+     * Returns true if the name is a keyword or a reserved global symbol, so it must not be used for a generated name.
+     */
+    public static boolean isReserved(CharSequence name) {
+        return reservedMatcher.matches(name);
+    }
+
+    public static boolean isReserved(char[] chars, int offset, int length) {
+        return reservedMatcher.matches(chars, offset, length);
+    }
 }
@@ -0,0 +1,229 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.*;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+
+import java.util.*;
+
+/**
+ * Replaces repeated string literals by references to variables declared in a single {@code var} statement at the start
+ * of the program, if it makes the output shorter: a literal is hoisted if its occurrences are longer than references
+ * to the variable plus its declaration.
+ * <p/>
+ * Literals are the same if they are printed the same. Names are declared in the given scope by
+ * {@link JsScope#declareFreshName} and don't clash with any name used in the program, so a reference is never shadowed
+ * by a local variable. Property names of object literals and string statements (like a {@code "use strict"} directive)
+ * are never replaced, the declaration is placed after the directives of the program.
+ * <p/>
+ * Nodes are modified in place.
+ */
+public final class JsStringLiteralHoister extends RecursiveJsVisitor {
+    private static final String NAME_PREFIX = "$str";
+
+    private static final class Occurrences {
+        final JsStringLiteral first;
+        int count;
+        String name;
+
+        Occurrences(JsStringLiteral first) {
+            this.first = first;
+        }
+
+        // printed length of the literal, escaping of unescaped literals isn't counted
+        int getLength() {
+            return first.getValue().length() + 2;
+        }
+
+        // bytes saved if the occurrences are replaced by references of the given length
+        int getSaving(int nameLength) {
+            // declaration is "name=literal,"
+            return count * getLength() - (count * nameLength + nameLength + getLength() + 2);
+        }
+    }
+
+    private final Map<String, Occurrences> literals = new THashMap<String, Occurrences>();
+    private final Set<String> usedNames = new THashSet<String>();
+
+    private JsStringLiteralHoister() {
+        super(true);
+    }
+
+    public static void exec(JsGlobalBlock program, JsScope scope) {
+        JsStringLiteralHoister hoister = new JsStringLiteralHoister();
+        hoister.accept(program);
+
+        final Map<String, Occurrences> hoisted = hoister.declareNames(scope);
+        if (hoisted.isEmpty()) {
+            return;
+        }
+
+        // literals can be shared, so slots that can't be replaced are skipped rather than literals
+        new JsVisitorWithContext() {
+            @Override
+            public boolean visit(JsBlock x, JsContext ctx) {
+                List<JsNode> statements = x.getStatements();
+                for (int i = 0, n = statements.size(); i < n; i++) {
+                    JsNode statement = statements.get(i);
+                    if (!(statement instanceof JsStringLiteral)) {
+                        JsNode result = acceptStatement(statement);
+                        if (result != statement) {
+                            statements.set(i, result);
+                        }
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean visit(JsPropertyInitializer x, JsContext ctx) {
+                x.setValueExpr(accept(x.getValueExpr()));
+                return false;
+            }
+
+            @Override
+            public void endVisit(JsStringLiteral x, JsContext ctx) {
+                Occurrences occurrences = hoisted.get(getKey(x));
+                if (occurrences != null) {
+                    ctx.replaceMe(new JsNameRef(occurrences.name).source(x.getSource()));
+                }
+            }
+        }.accept(program);
+
+        List<JsVar> vars = new ArrayList<JsVar>(hoisted.size());
+        for (Occurrences occurrences : hoisted.values()) {
+            // the first occurrence can be shared, so it isn't moved
+            JsStringLiteral first = occurrences.first;
+            vars.add(new JsVar(occurrences.name, new JsStringLiteral(first.getValue(), first.getQuote())));
+        }
+        List<JsNode> statements = program.getStatements();
+        int index = 0;
+        while (index < statements.size() && statements.get(index) instanceof JsStringLiteral) {
+            index++;
+        }
+        statements.add(index, new JsVars(vars, false));
+    }
+
+    private static String getKey(JsStringLiteral literal) {
+        char quote = literal.getQuote();
+        CharSequence value = literal.getValue();
+        if (quote == JsStringLiteral.UNESCAPED && !needsEscaping(value)) {
+            // printed the same as a single-quoted literal
+            quote = '\'';
+        }
+        return quote + value.toString();
+    }
+
+    private static boolean needsEscaping(CharSequence value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c > 0x7e || c == '\'' || c == '"' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the most profitable literals get names first, names are declared only for literals that are hoisted
+    private Map<String, Occurrences> declareNames(JsScope scope) {
+        List<Occurrences> candidates = new ArrayList<Occurrences>();
+        for (Occurrences occurrences : literals.values()) {
+            if (occurrences.count > 1 && occurrences.getSaving(NAME_PREFIX.length()) > 0) {
+                candidates.add(occurrences);
+            }
+        }
+        Collections.sort(candidates, new Comparator<Occurrences>() {
+            @Override
+            public int compare(Occurrences o1, Occurrences o2) {
+                int saving1 = o1.getSaving(NAME_PREFIX.length());
+                int saving2 = o2.getSaving(NAME_PREFIX.length());
+                return saving1 > saving2 ? -1 : saving1 == saving2 ? 0 : 1;
+            }
+        });
+
+        Map<String, Occurrences> hoisted = new LinkedHashMap<String, Occurrences>();
+        for (Occurrences occurrences : candidates) {
+            String name;
+            do {
+                name = scope.declareFreshName(NAME_PREFIX);
+            }
+            while (usedNames.contains(name));
+
+            if (occurrences.getSaving(name.length()) <= 0) {
+                // next names are not shorter and next literals save less
+                break;
+            }
+            occurrences.name = name;
+            hoisted.put(getKey(occurrences.first), occurrences);
+        }
+        return hoisted;
+    }
+
+    @Override
+    public void visitString(JsStringLiteral x) {
+        String key = getKey(x);
+        Occurrences occurrences = literals.get(key);
+        if (occurrences == null) {
+            occurrences = new Occurrences(x);
+            literals.put(key, occurrences);
+        }
+        occurrences.count++;
+    }
+
+    @Override
+    public void visitBlock(JsBlock block) {
+        for (JsNode statement : block.getStatements()) {
+            // a string statement may be a directive
+            if (!(statement instanceof JsStringLiteral)) {
+                accept(statement);
+            }
+        }
+    }
+
+    @Override
+    public void visitPropertyInitializer(JsPropertyInitializer x) {
+        // property name can't be replaced
+        accept(x.getValueExpr());
+    }
+
+    @Override
+    public void visitNameRef(JsNameRef nameRef) {
+        if (nameRef.getQualifier() == null && nameRef.getName() != null) {
+            usedNames.add(nameRef.getName());
+        }
+        super.visitNameRef(nameRef);
+    }
+
+    @Override
+    public void visit(JsVar x) {
+        usedNames.add(x.getName());
+        super.visit(x);
+    }
+
+    @Override
+    public void visitParameter(JsParameter x) {
+        usedNames.add(x.getName());
+    }
+
+    @Override
+    public void visitFunction(JsFunction x) {
+        if (x.getName() != null) {
+            usedNames.add(x.getName());
+        }
+        super.visitFunction(x);
+    }
+
+    @Override
+    public void visitCatch(JsCatch x) {
+        usedNames.add(x.getParameter().getName());
+        super.visitCatch(x);
+    }
+
+    @Override
+    public void visitForIn(JsForIn x) {
+        if (x.getIterVarName() != null) {
+            usedNames.add(x.getIterVarName());
+        }
+        super.visitForIn(x);
+    }
+}
@@ -0,0 +1,888 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.Source;
+import com.google.dart.compiler.backend.js.ast.*;
+import com.google.dart.compiler.common.SourceInfo;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structural hash and equality of subtrees: nodes are equal if they are of the same class and have equal names,
+ * operators, literal values (string values are compared by content, whatever {@link CharSequence} they are),
+ * formatting flags and children. Scopes are ignored, so is source info unless it's asked for,
+ * a {@link ChameleonJsExpression} is compared as the expression it resolves to.
+ * <p/>
+ * Nodes don't override {@code equals} and {@code hashCode}, they are keyed by identity, see {@link StructuralHashCache}
+ * to reuse computed hashes. The hash depends only on the structure, so it's the same in every run.
+ * Left-nested binary operations and qualifier chains are handled in a loop, so long concatenations don't overflow
+ * the stack.
+ */
+public final class JsStructuralEquality {
+    private JsStructuralEquality() {
+    }
+
+    public static int hash(@Nullable JsNode node) {
+        return hash(node, null);
+    }
+
+    /**
+     * Hashes of subtrees found in the cache are reused, hashes of the computed ones (except leaves) are put in it.
+     */
+    static int hash(@Nullable JsNode node, @Nullable Map<JsNode, Integer> cache) {
+        return hash(node, cache, false);
+    }
+
+    /**
+     * @param hashSources if true, source infos of nodes are mixed in, consistently with {@link #equal(JsNode, JsNode, boolean)}
+     * comparing sources
+     */
+    static int hash(@Nullable JsNode node, @Nullable Map<JsNode, Integer> cache, boolean hashSources) {
+        return new Hasher(cache, hashSources).hashOf(node);
+    }
+
+    public static boolean equal(@Nullable JsNode a, @Nullable JsNode b) {
+        return equal(a, b, false);
+    }
+
+    /**
+     * @param compareSources if true, source infos of nodes must be equal too: {@link SourceInfo}s are equal if they have
+     * the same source name, line and column (what a source map records), other source objects are compared by equals
+     */
+    public static boolean equal(@Nullable JsNode a, @Nullable JsNode b, boolean compareSources) {
+        return new Comparator(compareSources).equal(a, b);
+    }
+
+    private static boolean equalSources(@Nullable Object a, @Nullable Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a instanceof SourceInfo && b instanceof SourceInfo) {
+            SourceInfo info = (SourceInfo) a;
+            SourceInfo otherInfo = (SourceInfo) b;
+            if (info.getLine() != otherInfo.getLine() || info.getColumn() != otherInfo.getColumn()) {
+                return false;
+            }
+            Source source = info.getSource();
+            Source otherSource = otherInfo.getSource();
+            return source == otherSource || (source != null && otherSource != null && source.getName().equals(otherSource.getName()));
+        }
+        return a != null && a.equals(b);
+    }
+
+    private static int hashSource(@Nullable Object source) {
+        if (source instanceof SourceInfo) {
+            SourceInfo info = (SourceInfo) source;
+            Source file = info.getSource();
+            return 31 * (31 * info.getLine() + info.getColumn()) + (file == null ? 0 : file.getName().hashCode());
+        }
+        return source == null ? 0 : source.hashCode();
+    }
+
+    private static JsNode resolve(JsNode node) {
+        if (!(node instanceof ChameleonJsExpression)) {
+            return node;
+        }
+
+        final JsNode[] resolved = new JsNode[1];
+        node.accept(new JsVisitor() {
+            @Override
+            protected void visitElement(JsNode node) {
+                resolved[0] = node;
+            }
+        });
+        return resolved[0];
+    }
+
+    private static boolean equal(@Nullable CharSequence a, @Nullable CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.length() != b.length()) {
+            return false;
+        }
+        if (a instanceof String && b instanceof String) {
+            return a.equals(b);
+        }
+        for (int i = 0, n = a.length(); i < n; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // node kinds are mixed in as the constants of the serialized format, a child is mixed in as its own hash,
+    // so a hash of a subtree doesn't depend on where it is and can be cached
+    private static final class Hasher extends JsVisitor {
+        private final List<JsExpression> chain = new ArrayList<JsExpression>();
+        @Nullable
+        private final Map<JsNode, Integer> cache;
+        private final boolean hashSources;
+        // hash of the node being visited
+        private int hash;
+
+        Hasher(@Nullable Map<JsNode, Integer> cache, boolean hashSources) {
+            this.cache = cache;
+            this.hashSources = hashSources;
+        }
+
+        private void mix(int value) {
+            hash = 31 * hash + value;
+        }
+
+        private void mix(@Nullable CharSequence string) {
+            if (string == null) {
+                mix(0);
+                return;
+            }
+            // same as String.hashCode, but for any char sequence
+            int stringHash = 0;
+            for (int i = 0, n = string.length(); i < n; i++) {
+                stringHash = 31 * stringHash + string.charAt(i);
+            }
+            mix(string.length());
+            mix(stringHash);
+        }
+
+        int hashOf(@Nullable JsNode node) {
+            if (node == null) {
+                return JsAstFormat.NULL;
+            }
+
+            Integer cached = getCached(node);
+            if (cached != null) {
+                return cached;
+            }
+            int outerHash = hash;
+            hash = 0;
+            accept(node);
+            int result = withSource(hash, resolve(node));
+            hash = outerHash;
+            putCached(node, result);
+            return result;
+        }
+
+        private int withSource(int nodeHash, JsNode node) {
+            return hashSources ? 31 * nodeHash + hashSource(node.getSource()) : nodeHash;
+        }
+
+        @Nullable
+        private Integer getCached(JsNode node) {
+            return cache == null ? null : cache.get(node);
+        }
+
+        private void putCached(JsNode node, int nodeHash) {
+            // leaves are cheap to hash
+            if (cache != null && !isLeaf(node)) {
+                cache.put(node, nodeHash);
+            }
+        }
+
+        private static boolean isLeaf(JsNode node) {
+            return node instanceof JsNumberLiteral || node instanceof JsStringLiteral || node instanceof JsLiteral.JsBooleanLiteral ||
+                   node instanceof JsNullLiteral || node instanceof JsLiteral.JsThisRef || node instanceof JsParameter ||
+                   (node instanceof JsNameRef && ((JsNameRef) node).getQualifier() == null);
+        }
+
+        private void hashNode(@Nullable JsNode node) {
+            mix(hashOf(node));
+        }
+
+        private void hashList(List<? extends JsNode> nodes) {
+            mix(nodes.size());
+            for (JsNode node : nodes) {
+                hashNode(node);
+            }
+        }
+
+        @Override
+        public void visitArrayAccess(JsArrayAccess x) {
+            mix(JsAstFormat.ARRAY_ACCESS);
+            hashNode(x.getArrayExpression());
+            hashNode(x.getIndexExpression());
+        }
+
+        @Override
+        public void visitArray(JsArrayLiteral x) {
+            mix(JsAstFormat.ARRAY);
+            hashList(x.getExpressions());
+        }
+
+        @Override
+        public void visitBinaryExpression(JsBinaryOperation x) {
+            // the chain is hashed from the innermost operation out, down to an operation with a cached hash
+            int start = chain.size();
+            JsExpression arg1 = x;
+            Integer arg1Hash = null;
+            while (arg1 instanceof JsBinaryOperation && (arg1 == x || (arg1Hash = getCached(arg1)) == null)) {
+                chain.add(arg1);
+                arg1 = ((JsBinaryOperation) arg1).getArg1();
+            }
+
+            int operationHash = arg1Hash == null ? hashOf(arg1) : arg1Hash;
+            for (int i = chain.size() - 1; i >= start; i--) {
+                JsBinaryOperation operation = (JsBinaryOperation) chain.remove(i);
+                int arg2Hash = hashOf(operation.getArg2());
+                hash = 0;
+                mix(JsAstFormat.BINARY);
+                mix(operation.getOperator().ordinal());
+                mix(operationHash);
+                mix(arg2Hash);
+                operationHash = hash;
+                if (operation != x) {
+                    operationHash = withSource(operationHash, operation);
+                    putCached(operation, operationHash);
+                }
+            }
+            hash = operationHash;
+        }
+
+        @Override
+        public void visitBlock(JsBlock block) {
+            mix(block.isGlobalBlock() ? JsAstFormat.GLOBAL_BLOCK : JsAstFormat.BLOCK);
+            hashList(block.getStatements());
+        }
+
+        @Override
+        public void visitBoolean(JsLiteral.JsBooleanLiteral x) {
+            mix(x.getValue() ? JsAstFormat.TRUE : JsAstFormat.FALSE);
+        }
+
+        @Override
+        public void visitBreak(JsBreak x) {
+            mix(JsAstFormat.BREAK);
+            mix(x.getLabel());
+        }
+
+        @Override
+        public void visitCase(JsCase x) {
+            mix(JsAstFormat.CASE);
+            hashNode(x.getCaseExpression());
+            hashList(x.getStatements());
+        }
+
+        @Override
+        public void visitCatch(JsCatch x) {
+            mix(JsAstFormat.CATCH);
+            mix(x.getParameter().getName());
+            hashNode(x.getCondition());
+            hashNode(x.getBody());
+        }
+
+        @Override
+        public void visitConditional(JsConditional x) {
+            mix(JsAstFormat.CONDITIONAL);
+            hashNode(x.getTestExpression());
+            hashNode(x.getThenExpression());
+            hashNode(x.getElseExpression());
+        }
+
+        @Override
+        public void visitContinue(JsContinue x) {
+            mix(JsAstFormat.CONTINUE);
+            mix(x.getLabel());
+        }
+
+        @Override
+        public void visitDebugger(JsDebugger x) {
+            mix(JsAstFormat.DEBUGGER);
+        }
+
+        @Override
+        public void visitDefault(JsDefault x) {
+            mix(JsAstFormat.DEFAULT);
+            hashList(x.getStatements());
+        }
+
+        @Override
+        public void visitDoWhile(JsDoWhile x) {
+            mix(JsAstFormat.DO_WHILE);
+            hashNode(x.getCondition());
+            hashNode(x.getBody());
+        }
+
+        @Override
+        public void visitEmpty(JsEmpty x) {
+            mix(JsAstFormat.EMPTY);
+        }
+
+        @Override
+        public void visitFor(JsFor x) {
+            mix(JsAstFormat.FOR);
+            hashNode(x.getInitVars() == null ? x.getInitExpression() : x.getInitVars());
+            hashNode(x.getCondition());
+            hashNode(x.getIncrementExpression());
+            hashNode(x.getBody());
+        }
+
+        @Override
+        public void visitForIn(JsForIn x) {
+            mix(JsAstFormat.FOR_IN);
+            mix(x.getIterVarName());
+            hashNode(x.getIterExpression());
+            hashNode(x.getObjectExpression());
+            hashNode(x.getBody());
+        }
+
+        @Override
+        public void visitFunction(JsFunction x) {
+            mix(JsAstFormat.FUNCTION);
+            mix(x.getName());
+            hashList(x.getParameters());
+            hashNode(x.getBody());
+        }
+
+        @Override
+        public void visitIf(JsIf x) {
+            mix(JsAstFormat.IF);
+            hashNode(x.getIf());
+            hashNode(x.getThen());
+            hashNode(x.getElse());
+        }
+
+        @Override
+        public void visitInvocation(JsInvocation invocation) {
+            mix(JsAstFormat.INVOCATION);
+            hashNode(invocation.getQualifier());
+            hashList(invocation.getArguments());
+        }
+
+        @Override
+        public void visitLabel(JsLabel x) {
+            mix(JsAstFormat.LABEL);
+            mix(x.getName());
+            hashNode(x.getStatement());
+        }
+
+        @Override
+        public void visitNameRef(JsNameRef nameRef) {
+            // the chain is hashed from the innermost reference out, down to a reference with a cached hash
+            int start = chain.size();
+            JsExpression qualifier = nameRef;
+            Integer qualifierHash = null;
+            while (qualifier instanceof JsNameRef && (qualifier == nameRef || (qualifierHash = getCached(qualifier)) == null)) {
+                chain.add(qualifier);
+                qualifier = ((JsNameRef) qualifier).getQualifier();
+            }
+
+            int referenceHash = qualifierHash == null ? hashOf(qualifier) : qualifierHash;
+            for (int i = chain.size() - 1; i >= start; i--) {
+                JsNameRef reference = (JsNameRef) chain.remove(i);
+                hash = 0;
+                mix(JsAstFormat.NAME_REF);
+                mix(reference.getName());
+                mix(referenceHash);
+                referenceHash = hash;
+                if (reference != nameRef) {
+                    referenceHash = withSource(referenceHash, reference);
+                    putCached(reference, referenceHash);
+                }
+            }
+            hash = referenceHash;
+        }
+
+        @Override
+        public void visitNew(JsNew x) {
+            mix(JsAstFormat.NEW);
+            hashNode(x.getConstructorExpression());
+            hashList(x.getArguments());
+        }
+
+        @Override
+        public void visitNull(JsNullLiteral x) {
+            mix(JsAstFormat.NULL_LITERAL);
+        }
+
+        @Override
+        public void visitNumber(JsNumberLiteral number) {
+            // Number.hashCode of the boxed types is specified, so it doesn't change between runs
+            Number value = number.getValue();
+            mix(JsAstFormat.INT);
+            mix(value.getClass().getName());
+            mix(value.hashCode());
+        }
+
+        @Override
+        public void visitObjectLiteral(JsObjectLiteral x) {
+            mix(JsAstFormat.OBJECT_LITERAL);
+            mix(x.isMultiline() ? 1 : 0);
+            hashList(x.getPropertyInitializers());
+        }
+
+        @Override
+        public void visitParameter(JsParameter x) {
+            mix(JsAstFormat.PARAMETER);
+            mix(x.getName());
+        }
+
+        @Override
+        public void visitPostfixOperation(JsPostfixOperation x) {
+            mix(JsAstFormat.POSTFIX);
+            mix(x.getOperator().ordinal());
+            hashNode(x.getArg());
+        }
+
+        @Override
+        public void visitPrefixOperation(JsPrefixOperation x) {
+            mix(JsAstFormat.PREFIX);
+            mix(x.getOperator().ordinal());
+            hashNode(x.getArg());
+        }
+
+        @Override
+        public void visitPropertyInitializer(JsPropertyInitializer x) {
+            mix(JsAstFormat.PROPERTY_INITIALIZER);
+            mix(x.getLabel());
+            if (x.getLabel() == null) {
+                hashNode(x.getLabelExpr());
+            }
+            hashNode(x.getValueExpr());
+        }
+
+        @Override
+        public void visitRegExp(JsRegExp x) {
+            mix(JsAstFormat.REGEXP);
+            mix(x.getPattern());
+            mix(x.getFlags());
+        }
+
+        @Override
+        public void visitReturn(JsReturn x) {
+            mix(JsAstFormat.RETURN);
+            hashNode(x.getExpression());
+        }
+
+        @Override
+        public void visitString(JsStringLiteral x) {
+            mix(JsAstFormat.STRING);
+            mix(x.getQuote());
+            mix(x.getValue());
+        }
+
+        @Override
+        public void visit(JsSwitch x) {
+            mix(JsAstFormat.SWITCH);
+            hashNode(x.getExpression());
+            hashList(x.getCases());
+        }
+
+        @Override
+        public void visitThis(JsLiteral.JsThisRef x) {
+            mix(JsAstFormat.THIS);
+        }
+
+        @Override
+        public void visitThrow(JsThrow x) {
+            mix(JsAstFormat.THROW);
+            hashNode(x.getExpression());
+        }
+
+        @Override
+        public void visitTry(JsTry x) {
+            mix(JsAstFormat.TRY);
+            hashNode(x.getTryBlock());
+            hashList(x.getCatches());
+            hashNode(x.getFinallyBlock());
+        }
+
+        @Override
+        public void visit(JsVar x) {
+            mix(JsAstFormat.VAR);
+            mix(x.getName());
+            hashNode(x.getInitExpression());
+        }
+
+        @Override
+        public void visitVars(JsVars x) {
+            mix(JsAstFormat.VARS);
+            mix(x.isMultiline() ? 1 : 0);
+            hashList(x.getVars());
+        }
+
+        @Override
+        public void visitWhile(JsWhile x) {
+            mix(JsAstFormat.WHILE);
+            hashNode(x.getCondition());
+            hashNode(x.getBody());
+        }
+
+        @Override
+        public void visitDocComment(JsDocComment comment) {
+            mix(JsAstFormat.DOC_COMMENT);
+            Map<String, Object> tags = comment.getTags();
+            mix(tags.size());
+            for (Map.Entry<String, Object> entry : tags.entrySet()) {
+                mix(entry.getKey());
+                Object value = entry.getValue();
+                if (value instanceof JsNode) {
+                    hashNode((JsNode) value);
+                }
+                else {
+                    mix(value == null ? 0 : value.hashCode());
+                }
+            }
+        }
+
+        @Override
+        protected void visitElement(JsNode node) {
+            throw new IllegalArgumentException("Unsupported node: " + node.getClass().getName());
+        }
+    }
+
+    // visits the first node, the node of the same class it's compared with is in "other"
+    private static final class Comparator extends JsVisitor {
+        private final List<JsBinaryOperation> binaryChain = new ArrayList<JsBinaryOperation>();
+        private final boolean compareSources;
+        private JsNode other;
+        private boolean result;
+
+        Comparator(boolean compareSources) {
+            this.compareSources = compareSources;
+        }
+
+        private boolean equalSources(JsNode a, JsNode b) {
+            return !compareSources || JsStructuralEquality.equalSources(a.getSource(), b.getSource());
+        }
+
+        boolean equal(@Nullable JsNode a, @Nullable JsNode b) {
+            if (a == b) {
+                return true;
+            }
+            if (a == null || b == null) {
+                return false;
+            }
+
+            a = resolve(a);
+            b = resolve(b);
+            if (a == b) {
+                return true;
+            }
+            if (a.getClass() != b.getClass() || !equalSources(a, b)) {
+                return false;
+            }
+            other = b;
+            accept(a);
+            return result;
+        }
+
+        private boolean equalLists(List<? extends JsNode> a, List<? extends JsNode> b) {
+            int size = a.size();
+            if (size != b.size()) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!equal(a.get(i), b.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void visitArrayAccess(JsArrayAccess x) {
+            JsArrayAccess y = (JsArrayAccess) other;
+            result = equal(x.getArrayExpression(), y.getArrayExpression()) && equal(x.getIndexExpression(), y.getIndexExpression());
+        }
+
+        @Override
+        public void visitArray(JsArrayLiteral x) {
+            result = equalLists(x.getExpressions(), ((JsArrayLiteral) other).getExpressions());
+        }
+
+        @Override
+        public void visitBinaryExpression(JsBinaryOperation x) {
+            // operators of both left-nested chains first, then the innermost left operands and right operands
+            int start = binaryChain.size();
+            JsExpression arg1 = x;
+            JsExpression otherArg1 = (JsExpression) other;
+            while (arg1 instanceof JsBinaryOperation && otherArg1 instanceof JsBinaryOperation) {
+                JsBinaryOperation operation = (JsBinaryOperation) arg1;
+                JsBinaryOperation otherOperation = (JsBinaryOperation) otherArg1;
+                if (operation.getOperator() != otherOperation.getOperator() || !equalSources(operation, otherOperation)) {
+                    binaryChain.subList(start, binaryChain.size()).clear();
+                    result = false;
+                    return;
+                }
+                binaryChain.add(operation);
+                binaryChain.add(otherOperation);
+                arg1 = operation.getArg1();
+                otherArg1 = otherOperation.getArg1();
+            }
+
+            boolean equal = equal(arg1, otherArg1);
+            for (int i = binaryChain.size() - 1; equal && i > start; i -= 2) {
+                equal = equal(binaryChain.get(i - 1).getArg2(), binaryChain.get(i).getArg2());
+            }
+            binaryChain.subList(start, binaryChain.size()).clear();
+            result = equal;
+        }
+
+        @Override
+        public void visitBlock(JsBlock block) {
+            result = equalLists(block.getStatements(), ((JsBlock) other).getStatements());
+        }
+
+        @Override
+        public void visitBoolean(JsLiteral.JsBooleanLiteral x) {
+            result = x.getValue() == ((JsLiteral.JsBooleanLiteral) other).getValue();
+        }
+
+        @Override
+        public void visitBreak(JsBreak x) {
+            result = JsStructuralEquality.equal(x.getLabel(), ((JsBreak) other).getLabel());
+        }
+
+        @Override
+        public void visitCase(JsCase x) {
+            JsCase y = (JsCase) other;
+            result = equal(x.getCaseExpression(), y.getCaseExpression()) && equalLists(x.getStatements(), y.getStatements());
+        }
+
+        @Override
+        public void visitCatch(JsCatch x) {
+            JsCatch y = (JsCatch) other;
+            result = JsStructuralEquality.equal(x.getParameter().getName(), y.getParameter().getName()) &&
+                     equal(x.getCondition(), y.getCondition()) &&
+                     equal(x.getBody(), y.getBody());
+        }
+
+        @Override
+        public void visitConditional(JsConditional x) {
+            JsConditional y = (JsConditional) other;
+            result = equal(x.getTestExpression(), y.getTestExpression()) &&
+                     equal(x.getThenExpression(), y.getThenExpression()) &&
+                     equal(x.getElseExpression(), y.getElseExpression());
+        }
+
+        @Override
+        public void visitContinue(JsContinue x) {
+            result = JsStructuralEquality.equal(x.getLabel(), ((JsContinue) other).getLabel());
+        }
+
+        @Override
+        public void visitDebugger(JsDebugger x) {
+            result = true;
+        }
+
+        @Override
+        public void visitDefault(JsDefault x) {
+            result = equalLists(x.getStatements(), ((JsDefault) other).getStatements());
+        }
+
+        @Override
+        public void visitDoWhile(JsDoWhile x) {
+            JsDoWhile y = (JsDoWhile) other;
+            result = equal(x.getCondition(), y.getCondition()) && equal(x.getBody(), y.getBody());
+        }
+
+        @Override
+        public void visitEmpty(JsEmpty x) {
+            result = true;
+        }
+
+        @Override
+        public void visitFor(JsFor x) {
+            JsFor y = (JsFor) other;
+            result = equal(x.getInitVars(), y.getInitVars()) &&
+                     equal(x.getInitExpression(), y.getInitExpression()) &&
+                     equal(x.getCondition(), y.getCondition()) &&
+                     equal(x.getIncrementExpression(), y.getIncrementExpression()) &&
+                     equal(x.getBody(), y.getBody());
+        }
+
+        @Override
+        public void visitForIn(JsForIn x) {
+            JsForIn y = (JsForIn) other;
+            result = JsStructuralEquality.equal(x.getIterVarName(), y.getIterVarName()) &&
+                     equal(x.getIterExpression(), y.getIterExpression()) &&
+                     equal(x.getObjectExpression(), y.getObjectExpression()) &&
+                     equal(x.getBody(), y.getBody());
+        }
+
+        @Override
+        public void visitFunction(JsFunction x) {
+            JsFunction y = (JsFunction) other;
+            result = JsStructuralEquality.equal(x.getName(), y.getName()) &&
+                     equalLists(x.getParameters(), y.getParameters()) &&
+                     equal(x.getBody(), y.getBody());
+        }
+
+        @Override
+        public void visitIf(JsIf x) {
+            JsIf y = (JsIf) other;
+            result = equal(x.getIf(), y.getIf()) && equal(x.getThen(), y.getThen()) && equal(x.getElse(), y.getElse());
+        }
+
+        @Override
+        public void visitInvocation(JsInvocation invocation) {
+            JsInvocation y = (JsInvocation) other;
+            result = equal(invocation.getQualifier(), y.getQualifier()) && equalLists(invocation.getArguments(), y.getArguments());
+        }
+
+        @Override
+        public void visitLabel(JsLabel x) {
+            JsLabel y = (JsLabel) other;
+            result = JsStructuralEquality.equal(x.getName(), y.getName()) && equal(x.getStatement(), y.getStatement());
+        }
+
+        @Override
+        public void visitNameRef(JsNameRef nameRef) {
+            JsExpression qualifier = nameRef;
+            JsExpression otherQualifier = (JsExpression) other;
+            while (qualifier instanceof JsNameRef && otherQualifier instanceof JsNameRef) {
+                JsNameRef reference = (JsNameRef) qualifier;
+                JsNameRef otherReference = (JsNameRef) otherQualifier;
+                if (!JsStructuralEquality.equal(reference.getName(), otherReference.getName()) ||
+                    !equalSources(reference, otherReference)) {
+                    result = false;
+                    return;
+                }
+                qualifier = reference.getQualifier();
+                otherQualifier = otherReference.getQualifier();
+            }
+            result = equal(qualifier, otherQualifier);
+        }
+
+        @Override
+        public void visitNew(JsNew x) {
+            JsNew y = (JsNew) other;
+            result = equal(x.getConstructorExpression(), y.getConstructorExpression()) && equalLists(x.getArguments(), y.getArguments());
+        }
+
+        @Override
+        public void visitNull(JsNullLiteral x) {
+            result = true;
+        }
+
+        @Override
+        public void visitNumber(JsNumberLiteral number) {
+            // 1 and 1.0 are printed differently, so the type of the value is compared too
+            result = number.getValue().equals(((JsNumberLiteral) other).getValue());
+        }
+
+        @Override
+        public void visitObjectLiteral(JsObjectLiteral x) {
+            JsObjectLiteral y = (JsObjectLiteral) other;
+            result = x.isMultiline() == y.isMultiline() && equalLists(x.getPropertyInitializers(), y.getPropertyInitializers());
+        }
+
+        @Override
+        public void visitParameter(JsParameter x) {
+            result = JsStructuralEquality.equal(x.getName(), ((JsParameter) other).getName());
+        }
+
+        @Override
+        public void visitPostfixOperation(JsPostfixOperation x) {
+            JsPostfixOperation y = (JsPostfixOperation) other;
+            result = x.getOperator() == y.getOperator() && equal(x.getArg(), y.getArg());
+        }
+
+        @Override
+        public void visitPrefixOperation(JsPrefixOperation x) {
+            JsPrefixOperation y = (JsPrefixOperation) other;
+            result = x.getOperator() == y.getOperator() && equal(x.getArg(), y.getArg());
+        }
+
+        @Override
+        public void visitPropertyInitializer(JsPropertyInitializer x) {
+            JsPropertyInitializer y = (JsPropertyInitializer) other;
+            result = JsStructuralEquality.equal(x.getLabel(), y.getLabel()) &&
+                     (x.getLabel() != null || equal(x.getLabelExpr(), y.getLabelExpr())) &&
+                     equal(x.getValueExpr(), y.getValueExpr());
+        }
+
+        @Override
+        public void visitRegExp(JsRegExp x) {
+            JsRegExp y = (JsRegExp) other;
+            result = JsStructuralEquality.equal(x.getPattern(), y.getPattern()) && JsStructuralEquality.equal(x.getFlags(), y.getFlags());
+        }
+
+        @Override
+        public void visitReturn(JsReturn x) {
+            result = equal(x.getExpression(), ((JsReturn) other).getExpression());
+        }
+
+        @Override
+        public void visitString(JsStringLiteral x) {
+            JsStringLiteral y = (JsStringLiteral) other;
+            result = x.getQuote() == y.getQuote() && JsStructuralEquality.equal(x.getValue(), y.getValue());
+        }
+
+        @Override
+        public void visit(JsSwitch x) {
+            JsSwitch y = (JsSwitch) other;
+            result = equal(x.getExpression(), y.getExpression()) && equalLists(x.getCases(), y.getCases());
+        }
+
+        @Override
+        public void visitThis(JsLiteral.JsThisRef x) {
+            result = true;
+        }
+
+        @Override
+        public void visitThrow(JsThrow x) {
+            result = equal(x.getExpression(), ((JsThrow) other).getExpression());
+        }
+
+        @Override
+        public void visitTry(JsTry x) {
+            JsTry y = (JsTry) other;
+            result = equal(x.getTryBlock(), y.getTryBlock()) &&
+                     equalLists(x.getCatches(), y.getCatches()) &&
+                     equal(x.getFinallyBlock(), y.getFinallyBlock());
+        }
+
+        @Override
+        public void visit(JsVar x) {
+            JsVar y = (JsVar) other;
+            result = JsStructuralEquality.equal(x.getName(), y.getName()) && equal(x.getInitExpression(), y.getInitExpression());
+        }
+
+        @Override
+        public void visitVars(JsVars x) {
+            JsVars y = (JsVars) other;
+            result = x.isMultiline() == y.isMultiline() && equalLists(x.getVars(), y.getVars());
+        }
+
+        @Override
+        public void visitWhile(JsWhile x) {
+            JsWhile y = (JsWhile) other;
+            result = equal(x.getCondition(), y.getCondition()) && equal(x.getBody(), y.getBody());
+        }
+
+        @Override
+        public void visitDocComment(JsDocComment comment) {
+            Map<String, Object> tags = comment.getTags();
+            Map<String, Object> otherTags = ((JsDocComment) other).getTags();
+            if (tags.size() != otherTags.size()) {
+                result = false;
+                return;
+            }
+
+            // tags are printed in order
+            Iterator<Map.Entry<String, Object>> iterator = otherTags.entrySet().iterator();
+            for (Map.Entry<String, Object> entry : tags.entrySet()) {
+                Map.Entry<String, Object> otherEntry = iterator.next();
+                Object value = entry.getValue();
+                Object otherValue = otherEntry.getValue();
+                if (!entry.getKey().equals(otherEntry.getKey()) ||
+                    !(value instanceof JsNode && otherValue instanceof JsNode
+                      ? equal((JsNode) value, (JsNode) otherValue)
+                      : value == null ? otherValue == null : value.equals(otherValue))) {
+                    result = false;
+                    return;
+                }
+            }
+            result = true;
+        }
+
+        @Override
+        protected void visitElement(JsNode node) {
+            throw new IllegalArgumentException("Unsupported node: " + node.getClass().getName());
+        }
+    }
+}
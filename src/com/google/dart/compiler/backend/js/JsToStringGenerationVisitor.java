@@ -6,9 +6,15 @@ package com.google.dart.compiler.backend.js;
 
 import com.google.dart.compiler.backend.js.ast.*;
 import com.google.dart.compiler.util.TextOutput;
+import com.google.dart.compiler.util.TextOutputImpl;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Produces text output from a JavaScript AST.
@@ -42,6 +48,12 @@ public class JsToStringGenerationVisitor extends JsVisitor {
     private static final char[] HEX_DIGITS = {
                     '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
 
+    // indexed by ASCII char: 0 if the char is printed as is, otherwise the char of its single char escape sequence
+    // or NUMERIC_ESCAPE; chars above ASCII are always escaped numerically
+    private static final char NUMERIC_ESCAPE = 1;
+    private static final char[] ESCAPES_IN_SINGLE_QUOTES = createEscapeTable('\'');
+    private static final char[] ESCAPES_IN_DOUBLE_QUOTES = createEscapeTable('"');
+
     /**
      * How many lines of code to print inside of a JsBlock when printing terse.
      */
@@ -51,16 +63,48 @@ public class JsToStringGenerationVisitor extends JsVisitor {
 
     protected final TextOutput p;
 
+    // left-nested binary operations and qualifier chains are printed in a loop using these stacks instead of the Java one
+    private final ArrayList<JsBinaryOperation> binaryChain = new ArrayList<JsBinaryOperation>();
+    private final ArrayList<JsExpression> memberChain = new ArrayList<JsExpression>();
+
+    private ForkJoinPool parallelPool;
+    private PrintedStatementCache statementCache;
+
     public JsToStringGenerationVisitor(TextOutput out) {
         p = out;
     }
 
+    /**
+     * Enables printing of top-level statements of a global block in parallel, each one into its own buffer,
+     * using the given pool. The buffers are then appended to the output in order, {@link TextOutput.OutListener}
+     * of the output is notified as if statements were printed sequentially.
+     * <p/>
+     * Statements are printed by visitors created with {@link #createStatementPrinter(TextOutput)},
+     * positions observed by these visitors are relative to the start of the statement.
+     */
+    public void setParallelPool(@Nullable ForkJoinPool pool) {
+        parallelPool = pool;
+    }
+
+    /**
+     * Enables reuse of printed top-level statements of a global block across printing runs.
+     * Statements are printed by visitors created with {@link #createStatementPrinter(TextOutput)}, as in parallel mode.
+     */
+    public void setStatementCache(@Nullable PrintedStatementCache cache) {
+        statementCache = cache;
+    }
+
+    /**
+     * Creates a visitor that prints a single top-level statement in parallel or cached mode.
+     * Subclasses that change how nodes are printed must override it.
+     */
+    protected JsToStringGenerationVisitor createStatementPrinter(TextOutput out) {
+        return new JsToStringGenerationVisitor(out);
+    }
+
     @Override
     public void visitArrayAccess(JsArrayAccess x) {
-        printPair(x, x.getArrayExpression());
-        leftSquare();
-        accept(x.getIndexExpression());
-        rightSquare();
+        printMemberChain(x);
     }
 
     @Override
@@ -84,16 +128,86 @@ public class JsToStringGenerationVisitor extends JsVisitor {
 
     @Override
     public void visitBinaryExpression(JsBinaryOperation binaryOperation) {
+        // operations below base are right operands in tail position, closed after the last one is printed
+        int tailBase = binaryChain.size();
+        JsBinaryOperation current = binaryOperation;
+        while (true) {
+            // open parens of the whole left spine (outermost first), then print its leftmost operand
+            int base = binaryChain.size();
+            JsBinaryOperation node = current;
+            while (true) {
+                binaryChain.add(node);
+                JsExpression arg1 = node.getArg1();
+                parenPush(node, arg1, !node.getOperator().isLeftAssociative());
+                if (!(arg1 instanceof JsBinaryOperation)) {
+                    break;
+                }
+                node = (JsBinaryOperation) arg1;
+                chainNodeStarted(node);
+            }
+            accept(node.getArg1());
+
+            // unwind the left spine up to (not including) the current operation
+            for (int i = binaryChain.size() - 1; i > base; i--) {
+                JsBinaryOperation inner = binaryChain.remove(i);
+                boolean isParenOpened = printOperatorAndOpenArg2(inner);
+                accept(inner.getArg2());
+                if (isParenOpened) {
+                    rightParen();
+                }
+                chainNodeFinished(inner);
+            }
+
+            printOperatorAndOpenArg2(current);
+            // right operand is in tail position, continue the loop instead of recursing
+            JsExpression arg2 = current.getArg2();
+            if (arg2 instanceof JsBinaryOperation) {
+                current = (JsBinaryOperation) arg2;
+                chainNodeStarted(current);
+            }
+            else {
+                accept(arg2);
+                break;
+            }
+        }
+
+        for (int i = binaryChain.size() - 1; i >= tailBase; i--) {
+            JsBinaryOperation node = binaryChain.remove(i);
+            if (isArg2Enclosed(node)) {
+                rightParen();
+            }
+            if (i > tailBase) {
+                chainNodeFinished(node);
+            }
+        }
+    }
+
+    // whether printOperatorAndOpenArg2 opens a paren before the second operand
+    private static boolean isArg2Enclosed(JsBinaryOperation binaryOperation) {
         JsBinaryOperator operator = binaryOperation.getOperator();
-        JsExpression arg1 = binaryOperation.getArg1();
-        boolean isExpressionEnclosed = parenPush(binaryOperation, arg1, !operator.isLeftAssociative());
+        JsExpression arg2 = binaryOperation.getArg2();
+        if (operator == JsBinaryOperator.COMMA) {
+            return false;
+        }
+        if (arg2 instanceof JsBinaryOperation && ((JsBinaryOperation) arg2).getOperator() == JsBinaryOperator.AND) {
+            return true;
+        }
+        return parenCalc(binaryOperation, arg2, operator.isLeftAssociative());
+    }
 
-        accept(arg1);
+    /**
+     * Prints the part of binary operation between already printed first operand and second operand.
+     *
+     * @return <code>true</code> if paren was opened before second operand
+     */
+    private boolean printOperatorAndOpenArg2(JsBinaryOperation binaryOperation) {
+        JsBinaryOperator operator = binaryOperation.getOperator();
+        JsExpression arg1 = binaryOperation.getArg1();
         if (operator.isKeyword()) {
             _parenPopOrSpace(binaryOperation, arg1, !operator.isLeftAssociative());
         }
         else if (operator != JsBinaryOperator.COMMA) {
-            if (isExpressionEnclosed) {
+            if (parenCalc(binaryOperation, arg1, !operator.isLeftAssociative())) {
                 rightParen();
             }
             spaceOpt();
@@ -121,10 +235,7 @@ public class JsToStringGenerationVisitor extends JsVisitor {
                 isParenOpened = parenPush(binaryOperation, arg2, operator.isLeftAssociative());
             }
         }
-        accept(arg2);
-        if (isParenOpened) {
-            rightParen();
-        }
+        return isParenOpened;
     }
 
     @Override
@@ -407,13 +518,7 @@ public class JsToStringGenerationVisitor extends JsVisitor {
 
     @Override
     public void visitInvocation(JsInvocation invocation) {
-        if (invocation.getQualifier() != null) {
-            printPair(invocation, invocation.getQualifier());
-        }
-
-        leftParen();
-        printExpressions(invocation.getArguments());
-        rightParen();
+        printMemberChain(invocation);
     }
 
     @Override
@@ -426,27 +531,109 @@ public class JsToStringGenerationVisitor extends JsVisitor {
 
     @Override
     public void visitNameRef(JsNameRef nameRef) {
-        JsExpression qualifier = nameRef.getQualifier();
-        if (qualifier != null) {
-            boolean enclose = qualifier instanceof JsNumberLiteral || parenCalc(nameRef, qualifier, false);
-            if (enclose) {
+        printMemberChain(nameRef);
+    }
+
+    /**
+     * Prints name reference, invocation or array access together with the chain of its qualifiers
+     * (like <code>a.b().c[0].d</code>) without recursion.
+     */
+    private void printMemberChain(JsExpression expression) {
+        int base = memberChain.size();
+        JsExpression node = expression;
+        while (true) {
+            memberChain.add(node);
+            JsExpression qualifier = getMemberQualifier(node);
+            if (qualifier == null) {
+                break;
+            }
+
+            if (isMemberQualifierEnclosed(node, qualifier)) {
                 leftParen();
             }
-            accept(qualifier);
-            if (enclose) {
+            if (!isMember(qualifier)) {
+                accept(qualifier);
+                break;
+            }
+            node = qualifier;
+            chainNodeStarted(node);
+        }
+
+        for (int i = memberChain.size() - 1; i >= base; i--) {
+            JsExpression member = memberChain.remove(i);
+            JsExpression qualifier = getMemberQualifier(member);
+            if (qualifier != null && isMemberQualifierEnclosed(member, qualifier)) {
                 rightParen();
             }
-            p.print('.');
+            printMemberSelector(member);
+            if (i > base) {
+                chainNodeFinished(member);
+            }
+        }
+    }
+
+    private static boolean isMember(JsExpression expression) {
+        return expression instanceof JsNameRef || expression instanceof JsInvocation || expression instanceof JsArrayAccess;
+    }
+
+    private static JsExpression getMemberQualifier(JsExpression member) {
+        if (member instanceof JsNameRef) {
+            return ((JsNameRef) member).getQualifier();
+        }
+        else if (member instanceof JsInvocation) {
+            return ((JsInvocation) member).getQualifier();
+        }
+        else {
+            return ((JsArrayAccess) member).getArrayExpression();
         }
+    }
+
+    private static boolean isMemberQualifierEnclosed(JsExpression member, JsExpression qualifier) {
+        return (member instanceof JsNameRef && qualifier instanceof JsNumberLiteral) || parenCalc(member, qualifier, false);
+    }
 
-        p.maybeIndent();
-        beforeNodePrinted(nameRef);
-        p.print(nameRef.getName());
+    /**
+     * Prints the part of member after its (already printed) qualifier.
+     */
+    private void printMemberSelector(JsExpression member) {
+        if (member instanceof JsNameRef) {
+            JsNameRef nameRef = (JsNameRef) member;
+            if (nameRef.getQualifier() != null) {
+                p.print('.');
+            }
+            p.maybeIndent();
+            beforeNodePrinted(nameRef);
+            p.print(nameRef.getName());
+        }
+        else if (member instanceof JsInvocation) {
+            leftParen();
+            printExpressions(((JsInvocation) member).getArguments());
+            rightParen();
+        }
+        else {
+            leftSquare();
+            accept(((JsArrayAccess) member).getIndexExpression());
+            rightSquare();
+        }
     }
 
     protected void beforeNodePrinted(@SuppressWarnings("UnusedParameters") JsNode node) {
     }
 
+    /**
+     * Called when printing of a nested node of a left-nested binary operation or of a qualifier chain starts.
+     * These nodes are printed in a loop, they are not passed to {@link #accept} and their visit methods aren't called,
+     * unlike the outermost node of the chain.
+     */
+    protected void chainNodeStarted(@SuppressWarnings("UnusedParameters") JsExpression node) {
+    }
+
+    /**
+     * Called when printing of a node passed to {@link #chainNodeStarted} is finished.
+     */
+    protected void chainNodeFinished(@SuppressWarnings("UnusedParameters") JsExpression node) {
+    }
+
     @Override
     public void visitNew(JsNew x) {
         p.print(CHARS_NEW);
@@ -585,109 +772,96 @@ public class JsToStringGenerationVisitor extends JsVisitor {
      * from {@link org.mozilla.javascript.ScriptRuntime#escapeString(String)}
      * . The difference is that we quote with either &quot; or &apos; depending on
      * which one is used less inside the string.
+     * <p/>
+     * Runs of chars that don't need escaping are appended in bulk.
      */
     @SuppressWarnings("JavadocReference")
-    private static CharSequence javaScriptString(CharSequence chars, StringBuilder result, boolean forceDoubleQuote) {
+    private static void javaScriptString(CharSequence chars, StringBuilder result) {
         final int n = chars.length();
         int quoteCount = 0;
         int aposCount = 0;
-
         for (int i = 0; i < n; i++) {
-            switch (chars.charAt(i)) {
-                case '"':
-                    ++quoteCount;
-                    break;
-                case '\'':
-                    ++aposCount;
-                    break;
+            char c = chars.charAt(i);
+            if (c == '"') {
+                ++quoteCount;
+            }
+            else if (c == '\'') {
+                ++aposCount;
             }
         }
+        char quoteChar = quoteCount < aposCount ? '"' : '\'';
 
-        char quoteChar = (quoteCount < aposCount || forceDoubleQuote) ? '"' : '\'';
-        result.ensureCapacity(result.length() + chars.length() + 2);
+        char[] escapes = quoteChar == '"' ? ESCAPES_IN_DOUBLE_QUOTES : ESCAPES_IN_SINGLE_QUOTES;
+        result.ensureCapacity(result.length() + n + 2);
         result.append(quoteChar);
+        int runStart = 0;
         for (int i = 0; i < n; i++) {
             char c = chars.charAt(i);
-
-            if (' ' <= c && c <= '~' && c != quoteChar && c != '\\') {
+            char escape = c < escapes.length ? escapes[c] : NUMERIC_ESCAPE;
+            if (escape == 0) {
                 // an ordinary print character (like C isprint())
-                result.append(c);
                 continue;
             }
 
-            int escape = -1;
-            switch (c) {
-                case '\b':
-                    escape = 'b';
-                    break;
-                case '\f':
-                    escape = 'f';
-                    break;
-                case '\n':
-                    escape = 'n';
-                    break;
-                case '\r':
-                    escape = 'r';
-                    break;
-                case '\t':
-                    escape = 't';
-                    break;
-                case '"':
-                    escape = '"';
-                    break; // only reach here if == quoteChar
-                case '\'':
-                    escape = '\'';
-                    break; // only reach here if == quoteChar
-                case '\\':
-                    escape = '\\';
-                    break;
+            if (runStart < i) {
+                result.append(chars, runStart, i);
             }
+            runStart = i + 1;
 
-            if (escape >= 0) {
+            if (escape != NUMERIC_ESCAPE) {
                 // an \escaped sort of character
                 result.append('\\');
-                result.append((char) escape);
+                result.append(escape);
             }
-            else {
-                        /*
-                        * Emit characters from 0 to 31 that don't have a single character
-                        * escape sequence in octal where possible. This saves one or two
-                        * characters compared to the hexadecimal format '\xXX'.
-                        *
-                        * These short octal sequences may only be used at the end of the string
-                        * or where the following character is a non-digit. Otherwise, the
-                        * following character would be incorrectly interpreted as belonging to
-                        * the sequence.
-                        */
-                if (c < ' ' && (i == n - 1 || chars.charAt(i + 1) < '0' || chars.charAt(i + 1) > '9')) {
-                    result.append('\\');
-                    if (c > 0x7) {
-                        result.append((char) ('0' + (0x7 & (c >> 3))));
-                    }
-                    result.append((char) ('0' + (0x7 & c)));
-                }
-                else {
-                    int hexSize;
-                    if (c < 256) {
-                        // 2-digit hex
-                        result.append("\\x");
-                        hexSize = 2;
-                    }
-                    else {
-                        // Unicode.
-                        result.append("\\u");
-                        hexSize = 4;
-                    }
-                    // append hexadecimal form of ch left-padded with 0
-                    for (int shift = (hexSize - 1) * 4; shift >= 0; shift -= 4) {
-                        int digit = 0xf & (c >> shift);
-                        result.append(HEX_DIGITS[digit]);
-                    }
+            /*
+            * Emit characters from 0 to 31 that don't have a single character
+            * escape sequence in octal where possible. This saves one or two
+            * characters compared to the hexadecimal format '\xXX'.
+            *
+            * These short octal sequences may only be used at the end of the string
+            * or where the following character is a non-digit. Otherwise, the
+            * following character would be incorrectly interpreted as belonging to
+            * the sequence.
+            */
+            else if (c < ' ' && (i == n - 1 || chars.charAt(i + 1) < '0' || chars.charAt(i + 1) > '9')) {
+                result.append('\\');
+                if (c > 0x7) {
+                    result.append((char) ('0' + (0x7 & (c >> 3))));
                 }
+                result.append((char) ('0' + (0x7 & c)));
+            }
+            else if (c < 256) {
+                // 2-digit hex
+                result.append('\\').append('x').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+            else {
+                // Unicode, 4-digit hex
+                result.append('\\').append('u')
+                        .append(HEX_DIGITS[c >> 12]).append(HEX_DIGITS[(c >> 8) & 0xF])
+                        .append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
             }
         }
+        if (runStart < n) {
+            result.append(chars, runStart, n);
+        }
         result.append(quoteChar);
-        return result;
+    }
+
+    private static char[] createEscapeTable(char quoteChar) {
+        char[] table = new char[128];
+        for (int c = 0; c < table.length; c++) {
+            if (c < ' ' || c > '~') {
+                table[c] = NUMERIC_ESCAPE;
+            }
+        }
+        table['\b'] = 'b';
+        table['\f'] = 'f';
+        table['\n'] = 'n';
+        table['\r'] = 'r';
+        table['\t'] = 't';
+        table['\\'] = '\\';
+        table[quoteChar] = quoteChar;
+        return table;
     }
 
     @Override
@@ -696,7 +870,7 @@ public class JsToStringGenerationVisitor extends JsVisitor {
             p.maybeIndent();
             StringBuilder builder = p.getBuilder();
             int size = builder.length();
-            javaScriptString(stringLiteral.getValue(), builder, false);
+            javaScriptString(stringLiteral.getValue(), builder);
             p.builderProduced(builder.length() - size);
             return;
         }
@@ -855,6 +1029,11 @@ public class JsToStringGenerationVisitor extends JsVisitor {
 
     protected void printBlock(JsBlock block, boolean truncate) {
         boolean needBraces = !block.isGlobalBlock();
+        if (!needBraces && (parallelPool != null || statementCache != null)) {
+            printStatements(block.getStatements(), truncate);
+            return;
+        }
+
         if (needBraces) {
             blockOpen();
         }
@@ -882,6 +1061,231 @@ public class JsToStringGenerationVisitor extends JsVisitor {
         }
     }
 
+    private void printStatements(List<JsNode> statements, boolean truncate) {
+        final List<JsNode> toPrint = new ArrayList<JsNode>(statements.size());
+        boolean truncated = false;
+        for (JsNode node : statements) {
+            if (truncate && toPrint.size() > JS_BLOCK_LINES_TO_PRINT) {
+                truncated = true;
+                break;
+            }
+            if (!(node instanceof JsEmpty)) {
+                toPrint.add(node);
+            }
+        }
+
+        final PrintedStatement[] printed = new PrintedStatement[toPrint.size()];
+        boolean[] reused = new boolean[printed.length];
+        final boolean compact = p.isCompact();
+        if (statementCache != null) {
+            statementCache.blockStarted();
+        }
+        List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+        for (int i = 0; i < printed.length; i++) {
+            final JsNode node = toPrint.get(i);
+            if (statementCache != null) {
+                printed[i] = statementCache.get(node, compact, getClass(), isSourceInfoUsed());
+                if (printed[i] != null) {
+                    reused[i] = true;
+                    continue;
+                }
+            }
+
+            if (parallelPool == null) {
+                printed[i] = printStatement(node, compact);
+            }
+            else {
+                final int index = i;
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        printed[index] = printStatement(node, compact);
+                    }
+                });
+            }
+        }
+
+        if (!tasks.isEmpty()) {
+            final List<RecursiveAction> finalTasks = tasks;
+            parallelPool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(finalTasks);
+                }
+            });
+        }
+
+        for (int i = 0; i < printed.length; i++) {
+            PrintedStatement statement = printed[i];
+            if (statementCache != null && !reused[i]) {
+                statementCache.put(toPrint.get(i), statement, getClass(), isSourceInfoUsed());
+            }
+            // top-level statements are not indented, so the statement starts exactly at the current position
+            statementPrinted(statement.data, p.getLine(), p.getColumn());
+            appendPrinted(statement);
+        }
+
+        if (truncated) {
+            p.print("[...]");
+            newlineOpt();
+        }
+    }
+
+    private PrintedStatement printStatement(JsNode node, boolean compact) {
+        RecordingTextOutput out = new RecordingTextOutput(compact);
+        JsToStringGenerationVisitor printer = createStatementPrinter(out);
+        printer.accept(node);
+        printer.printSemiIfNeed(node);
+        printer.newlineOpt();
+        return new PrintedStatement(out.getBuilder(), out.events, out.eventCount, printer.getStatementData(), compact);
+    }
+
+    /**
+     * Text of a top-level statement printed into a separate buffer, positions of its newlines and indentations,
+     * and what the statement printer collected while printing it.
+     */
+    static final class PrintedStatement {
+        final StringBuilder text;
+        // see RecordingTextOutput
+        int[] events;
+        final int eventCount;
+        @Nullable
+        final Object data;
+        final boolean compact;
+
+        PrintedStatement(StringBuilder text, int[] events, int eventCount, @Nullable Object data, boolean compact) {
+            this.text = text;
+            this.events = events;
+            this.eventCount = eventCount;
+            this.data = data;
+            this.compact = compact;
+        }
+
+        void trimToSize() {
+            text.trimToSize();
+            if (events.length > eventCount) {
+                events = Arrays.copyOf(events, eventCount);
+            }
+        }
+    }
+
+    /**
+     * Returns what this visitor collected while printing a single top-level statement in parallel or cached mode
+     * (like source mappings), it is passed to {@link #statementPrinted} of the visitor that created this one.
+     * Data of a cached statement is passed to every run that reuses it, so it must not be modified after that.
+     */
+    @Nullable
+    protected Object getStatementData() {
+        return null;
+    }
+
+    /**
+     * Whether the data returned by {@link #getStatementData()} depends on source info of nodes, if it does,
+     * {@link PrintedStatementCache} reuses a statement only if source infos of its nodes are equal too.
+     */
+    protected boolean isSourceInfoUsed() {
+        return false;
+    }
+
+    /**
+     * Called in parallel or cached mode before text of a statement is appended to the output.
+     *
+     * @param statementData what the statement printer returned from {@link #getStatementData()}
+     */
+    protected void statementPrinted(@Nullable Object statementData, int line, int column) {
+    }
+
+    /**
+     * Appends text printed into a separate buffer, replaying its newlines and indentation
+     * so that line, column and the listener of the output are updated as if the text was printed directly.
+     */
+    private void appendPrinted(PrintedStatement statement) {
+        StringBuilder text = statement.text;
+        int[] events = statement.events;
+        int start = 0;
+        for (int i = 0; i < statement.eventCount; i += 2) {
+            int position = events[i];
+            int indentLevel = events[i + 1];
+            if (indentLevel < 0) {
+                appendRaw(text, start, position - 1);
+                p.newline();
+            }
+            else {
+                // output indents itself, relative to its current level
+                for (int j = 0; j < indentLevel; j++) {
+                    p.indentIn();
+                }
+                p.maybeIndent();
+                for (int j = 0; j < indentLevel; j++) {
+                    p.indentOut();
+                }
+            }
+            start = position;
+        }
+        appendRaw(text, start, text.length());
+    }
+
+    private void appendRaw(CharSequence text, int start, int end) {
+        if (start < end) {
+            p.maybeIndent();
+            StringBuilder builder = p.getBuilder();
+            int size = builder.length();
+            builder.append(text, start, end);
+            p.builderProduced(builder.length() - size);
+        }
+    }
+
+    /**
+     * Records positions of newlines and indentations, pairs of (position after, indent level or -1 for newline).
+     * Doesn't use {@link TextOutput.OutListener}, so it is left to the statement printer.
+     */
+    static final class RecordingTextOutput extends TextOutputImpl {
+        private int indentLevel;
+        private int[] events = new int[8];
+        private int eventCount;
+
+        RecordingTextOutput(boolean compact) {
+            super(compact);
+        }
+
+        @Override
+        public void indentIn() {
+            super.indentIn();
+            indentLevel++;
+        }
+
+        @Override
+        public void indentOut() {
+            super.indentOut();
+            indentLevel--;
+        }
+
+        @Override
+        public void newline() {
+            super.newline();
+            record(-1);
+        }
+
+        @Override
+        public void maybeIndent() {
+            boolean indent = isJustNewlined();
+            super.maybeIndent();
+            if (indent) {
+                record(indentLevel);
+            }
+        }
+
+        private void record(int level) {
+            if (eventCount == events.length) {
+                int[] newEvents = new int[events.length << 1];
+                System.arraycopy(events, 0, newEvents, 0, eventCount);
+                events = newEvents;
+            }
+            events[eventCount++] = getPosition();
+            events[eventCount++] = level;
+        }
+    }
+
     private void printSemiIfNeed(JsNode node) {
         if (!(node instanceof JsFunction) &&
             (node instanceof JsLiteral ||
@@ -932,8 +1336,8 @@ public class JsToStringGenerationVisitor extends JsVisitor {
     }
 
     private static boolean parenCalc(JsExpression parent, JsExpression child, boolean wrongAssoc) {
-        int parentPrec = JsPrecedenceVisitor.exec(parent);
-        int childPrec = JsPrecedenceVisitor.exec(child);
+        int parentPrec = parent.getPrecedence();
+        int childPrec = child.getPrecedence();
         return parentPrec > childPrec || parentPrec == childPrec && wrongAssoc;
     }
 
@@ -1009,13 +1413,16 @@ public class JsToStringGenerationVisitor extends JsVisitor {
         if (op.isKeyword()) {
             return true;
         }
-        if (arg instanceof JsBinaryOperation) {
+        while (arg instanceof JsBinaryOperation) {
             JsBinaryOperation binary = (JsBinaryOperation) arg;
             /*
             * If the binary operation has a higher precedence than op, then it won't
             * be parenthesized, so check the first argument of the binary operation.
             */
-            return binary.getOperator().getPrecedence() > op.getPrecedence() && spaceCalc(op, binary.getArg1());
+            if (binary.getOperator().getPrecedence() <= op.getPrecedence()) {
+                return false;
+            }
+            arg = binary.getArg1();
         }
         if (arg instanceof JsPrefixOperation) {
             JsOperator op2 = ((JsPrefixOperation) arg).getOperator();
@@ -0,0 +1,174 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.*;
+import com.google.dart.compiler.util.OutputSizeReport;
+import com.google.dart.compiler.util.TextOutput;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Produces text output and attributes its size to node types and to top-level functions, see {@link OutputSizeReport}.
+ * <p/>
+ * An anonymous top-level function is named after the variable, property or assignment target it is the value of.
+ */
+public class OutputSizeReportingVisitor extends JsToStringGenerationVisitor {
+    private static final String ANONYMOUS_FUNCTION = "<anonymous>";
+
+    private final OutputSizeReport report;
+
+    // start position and size of children printed so far, for each node being printed
+    private int[] starts = new int[32];
+    private int[] childSizes = new int[32];
+    private int depth;
+
+    // top-level function being printed
+    private JsFunction function;
+    // top-level function that is the value of the variable, property or assignment being printed, and its name
+    private JsFunction namedFunction;
+    private String functionName;
+
+    public OutputSizeReportingVisitor(TextOutput out, OutputSizeReport report) {
+        super(out);
+        this.report = report;
+    }
+
+    public OutputSizeReport getReport() {
+        return report;
+    }
+
+    @Override
+    public <T extends JsNode> void accept(T node) {
+        nodeStarted(node);
+        super.accept(node);
+        nodeFinished(node);
+    }
+
+    @Override
+    protected void chainNodeStarted(JsExpression node) {
+        nodeStarted(node);
+    }
+
+    @Override
+    protected void chainNodeFinished(JsExpression node) {
+        nodeFinished(node);
+    }
+
+    private void nodeStarted(JsNode node) {
+        if (function == null) {
+            nameFunction(node);
+        }
+        if (function == null && node instanceof JsFunction) {
+            function = (JsFunction) node;
+        }
+
+        if (depth == childSizes.length) {
+            int newLength = depth << 1;
+            starts = Arrays.copyOf(starts, newLength);
+            childSizes = Arrays.copyOf(childSizes, newLength);
+        }
+        starts[depth] = p.getPosition();
+        childSizes[depth] = 0;
+        depth++;
+    }
+
+    private void nodeFinished(JsNode node) {
+        depth--;
+        int size = p.getPosition() - starts[depth];
+        report.addNode(node.getClass(), size - childSizes[depth]);
+        addChildSize(size);
+
+        if (node == function) {
+            report.addFunction(getFunctionName(function), size);
+            function = null;
+        }
+    }
+
+    private void addChildSize(int size) {
+        if (depth > 0) {
+            childSizes[depth - 1] += size;
+        }
+        else {
+            report.addTotalSize(size);
+        }
+    }
+
+    private void nameFunction(JsNode node) {
+        if (node instanceof JsVar) {
+            JsVar var = (JsVar) node;
+            setFunctionName(var.getInitExpression(), var.getName());
+        }
+        else if (node instanceof JsPropertyInitializer) {
+            JsPropertyInitializer initializer = (JsPropertyInitializer) node;
+            JsExpression label = initializer.getLabelExpr();
+            String name = label == null ? initializer.getLabel() : getReferenceName(label);
+            setFunctionName(initializer.getValueExpr(), name);
+        }
+        else if (node instanceof JsBinaryOperation) {
+            JsBinaryOperation binaryOperation = (JsBinaryOperation) node;
+            if (binaryOperation.getOperator() == JsBinaryOperator.ASG) {
+                setFunctionName(binaryOperation.getArg2(), getReferenceName(binaryOperation.getArg1()));
+            }
+        }
+    }
+
+    private void setFunctionName(@Nullable JsExpression value, @Nullable String name) {
+        if (value instanceof JsFunction && name != null) {
+            namedFunction = (JsFunction) value;
+            functionName = name;
+        }
+    }
+
+    private String getFunctionName(JsFunction function) {
+        if (function.getName() != null) {
+            return function.getName();
+        }
+        return function == namedFunction ? functionName : ANONYMOUS_FUNCTION;
+    }
+
+    // a.b.c for qualified references, null if the expression isn't a reference
+    @Nullable
+    private static String getReferenceName(JsExpression expression) {
+        if (expression instanceof JsStringLiteral) {
+            return ((JsStringLiteral) expression).getValue().toString();
+        }
+        if (!(expression instanceof JsNameRef)) {
+            return null;
+        }
+
+        JsNameRef nameRef = (JsNameRef) expression;
+        if (nameRef.getName() == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(nameRef.getName());
+        JsExpression qualifier = nameRef.getQualifier();
+        while (qualifier != null) {
+            if (qualifier instanceof JsNameRef) {
+                builder.insert(0, '.').insert(0, ((JsNameRef) qualifier).getName());
+                qualifier = ((JsNameRef) qualifier).getQualifier();
+            }
+            else {
+                builder.insert(0, qualifier instanceof JsLiteral.JsThisRef ? "this." : "?.");
+                break;
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    protected JsToStringGenerationVisitor createStatementPrinter(TextOutput out) {
+        return new OutputSizeReportingVisitor(out, new OutputSizeReport());
+    }
+
+    @Override
+    protected Object getStatementData() {
+        return report;
+    }
+
+    @Override
+    protected void statementPrinted(Object statementData, int line, int column) {
+        OutputSizeReport statementReport = (OutputSizeReport) statementData;
+        report.merge(statementReport);
+        addChildSize(statementReport.getTotalSize());
+    }
+}
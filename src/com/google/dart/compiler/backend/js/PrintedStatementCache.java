@@ -0,0 +1,129 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.JsNode;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keeps printed text (and whatever the statement printer collected, like source mappings) of top-level statements,
+ * so statements equal to ones printed by a previous run are not printed again, see
+ * {@link JsToStringGenerationVisitor#setStatementCache(PrintedStatementCache)}.
+ * <p/>
+ * Statements are compared structurally (see {@link JsStructuralEquality}), with source infos if the printer maps them,
+ * so a regenerated AST reuses text of unchanged statements, and a statement changed after it was printed
+ * is printed again (with source infos compared, their source names, lines and columns are mixed in the hash, so a statement
+ * that only got other sources, even in place, isn't found). Call {@link #removeUnused()} after each run, so statements that are no longer printed
+ * don't accumulate.
+ * <p/>
+ * Hashes of statements and their subtrees are kept while a block is printed (the tree doesn't change meanwhile),
+ * so a statement that isn't found is not hashed again when its text is put.
+ */
+public final class PrintedStatementCache {
+    // HashMap compares hashes before the structural equality
+    private final Map<Key, Entry> statements = new HashMap<Key, Entry>();
+    private final StructuralHashCache hashes = new StructuralHashCache();
+    private final StructuralHashCache hashesWithSources = new StructuralHashCache(true);
+
+    private static final class Key {
+        // last statement printed with this text, so older trees can be collected
+        JsNode statement;
+        final int hash;
+        final boolean compact;
+        // class of the visitor that requested printing, printers of other visitors may collect something else
+        final Class<?> ownerClass;
+        final boolean compareSources;
+
+        Key(JsNode statement, int statementHash, boolean compact, Class<?> ownerClass, boolean compareSources) {
+            this.statement = statement;
+            this.compact = compact;
+            this.ownerClass = ownerClass;
+            this.compareSources = compareSources;
+            hash = 31 * statementHash + (compact ? 1 : 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && compact == key.compact && ownerClass == key.ownerClass && compareSources == key.compareSources &&
+                   JsStructuralEquality.equal(statement, key.statement, compareSources);
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final JsToStringGenerationVisitor.PrintedStatement printed;
+        boolean used = true;
+
+        Entry(Key key, JsToStringGenerationVisitor.PrintedStatement printed) {
+            this.key = key;
+            this.printed = printed;
+        }
+    }
+
+    /**
+     * Removes statements that weren't printed or reused since the previous call.
+     */
+    public void removeUnused() {
+        for (Iterator<Entry> iterator = statements.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.used) {
+                entry.used = false;
+            }
+            else {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        statements.clear();
+        hashes.clear();
+        hashesWithSources.clear();
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Called before statements of a block are looked up, the tree may have changed since the previous block was printed.
+     */
+    void blockStarted() {
+        hashes.clear();
+        hashesWithSources.clear();
+    }
+
+    private int hash(JsNode statement, boolean compareSources) {
+        return (compareSources ? hashesWithSources : hashes).hash(statement);
+    }
+
+    @Nullable
+    JsToStringGenerationVisitor.PrintedStatement get(JsNode statement, boolean compact, Class<?> ownerClass, boolean compareSources) {
+        Entry entry = statements.get(new Key(statement, hash(statement, compareSources), compact, ownerClass, compareSources));
+        if (entry == null) {
+            return null;
+        }
+        entry.used = true;
+        entry.key.statement = statement;
+        return entry.printed;
+    }
+
+    void put(JsNode statement, JsToStringGenerationVisitor.PrintedStatement printed, Class<?> ownerClass, boolean compareSources) {
+        printed.trimToSize();
+        Key key = new Key(statement, hash(statement, compareSources), printed.compact, ownerClass, compareSources);
+        // an equal statement printed in the same run, the map must hold the key of the entry
+        statements.remove(key);
+        statements.put(key, new Entry(key, printed));
+    }
+}
@@ -0,0 +1,107 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.JsExpression;
+import com.google.dart.compiler.backend.js.ast.JsNameRef;
+import com.google.dart.compiler.backend.js.ast.JsNode;
+import com.google.dart.compiler.common.SourceInfo;
+import com.google.dart.compiler.util.SourceMapBuilder;
+import com.google.dart.compiler.util.TextOutput;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Produces text output and records a source mapping for each printed node that has {@link SourceInfo}.
+ * Uses {@link TextOutput.OutListener} of the output.
+ */
+public class SourceMapGenerationVisitor extends JsToStringGenerationVisitor implements TextOutput.OutListener {
+    private final SourceMapBuilder sourceMapBuilder;
+
+    // nodes about to be printed on a new line, but the line isn't indented yet
+    private final List<SourceInfo> pendingSourceInfos = new ArrayList<SourceInfo>();
+
+    public SourceMapGenerationVisitor(TextOutput out, SourceMapBuilder sourceMapBuilder) {
+        super(out);
+        this.sourceMapBuilder = sourceMapBuilder;
+        out.setOutListener(this);
+    }
+
+    public SourceMapBuilder getSourceMapBuilder() {
+        return sourceMapBuilder;
+    }
+
+    @Override
+    public <T extends JsNode> void accept(T node) {
+        // name references are mapped at their names, see beforeNodePrinted
+        if (!(node instanceof JsNameRef)) {
+            mapSource(node);
+        }
+        super.accept(node);
+    }
+
+    @Override
+    protected void chainNodeStarted(JsExpression node) {
+        if (!(node instanceof JsNameRef)) {
+            mapSource(node);
+        }
+    }
+
+    @Override
+    protected void beforeNodePrinted(JsNode node) {
+        // the name of a reference, after its qualifier
+        mapSource(node);
+    }
+
+    private void mapSource(JsNode node) {
+        Object source = node.getSource();
+        if (source instanceof SourceInfo) {
+            if (p.isJustNewlined()) {
+                pendingSourceInfos.add((SourceInfo) source);
+            }
+            else {
+                sourceMapBuilder.addMapping(p.getLine(), p.getColumn(), (SourceInfo) source);
+            }
+        }
+    }
+
+    @Override
+    protected JsToStringGenerationVisitor createStatementPrinter(TextOutput out) {
+        return new SourceMapGenerationVisitor(out, new SourceMapBuilder());
+    }
+
+    @Override
+    protected Object getStatementData() {
+        // nodes at the end of the statement that printed nothing after a newline
+        flushPending(p.getLine(), p.getColumn());
+        return sourceMapBuilder;
+    }
+
+    @Override
+    protected boolean isSourceInfoUsed() {
+        return true;
+    }
+
+    @Override
+    protected void statementPrinted(Object statementData, int line, int column) {
+        flushPending(line, column);
+        sourceMapBuilder.append((SourceMapBuilder) statementData, line, column);
+    }
+
+    private void flushPending(int line, int column) {
+        if (!pendingSourceInfos.isEmpty()) {
+            for (SourceInfo info : pendingSourceInfos) {
+                sourceMapBuilder.addMapping(line, column, info);
+            }
+            pendingSourceInfos.clear();
+        }
+    }
+
+    @Override
+    public void newLined() {
+    }
+
+    @Override
+    public void indentedAfterNewLine() {
+        flushPending(p.getLine(), p.getColumn());
+    }
+}
@@ -0,0 +1,126 @@
+package com.google.dart.compiler.backend.js;
+
+import com.google.dart.compiler.backend.js.ast.JsNode;
+import com.google.dart.compiler.backend.js.ast.JsVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps structural hashes (see {@link JsStructuralEquality}) of subtrees, so a hash is computed once and subtrees
+ * with different hashes are not compared.
+ * <p/>
+ * Hashing a node caches hashes of all its descendants (except leaves) too, so hashing a subtree of a hashed tree,
+ * or a tree that contains a hashed subtree, doesn't visit the hashed part again. Subtrees are keyed by identity and held weakly.
+ * <p/>
+ * Nodes have no parent links, so a change isn't detected: after a node is changed in place, call
+ * {@link #invalidate(JsNode, JsNode)} with the root of the hashed tree, or {@link #clear()}, before the tree is hashed again.
+ * {@link #invalidate(JsNode)} alone is enough only if the node isn't a descendant of any hashed node.
+ */
+public final class StructuralHashCache {
+    private final Map<JsNode, Integer> hashes = new WeakHashMap<JsNode, Integer>();
+    private final boolean compareSources;
+
+    public StructuralHashCache() {
+        this(false);
+    }
+
+    /**
+     * @param compareSources if true, source infos are mixed in hashes and compared, see {@link JsStructuralEquality#equal(JsNode, JsNode, boolean)}
+     */
+    public StructuralHashCache(boolean compareSources) {
+        this.compareSources = compareSources;
+    }
+
+    public int hash(JsNode node) {
+        return JsStructuralEquality.hash(node, hashes, compareSources);
+    }
+
+    public boolean equal(JsNode a, JsNode b) {
+        return a == b || (hash(a) == hash(b) && JsStructuralEquality.equal(a, b, compareSources));
+    }
+
+    /**
+     * Removes the hash of the node only, its ancestors keep hashes that include the node.
+     */
+    public void invalidate(JsNode node) {
+        hashes.remove(node);
+    }
+
+    /**
+     * Removes hashes of the changed node and of all its ancestors in the tree of the given root (on every path to the node,
+     * if it's used in several places), descendants of the changed node keep their hashes. The whole tree is walked,
+     * in a loop, so a deep tree doesn't overflow the stack.
+     */
+    public void invalidate(JsNode root, JsNode changed) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+
+        ChildCollector collector = new ChildCollector();
+        // nodes of the current path, their children and whether the changed node is found below them
+        List<JsNode> path = new ArrayList<JsNode>();
+        List<List<JsNode>> children = new ArrayList<List<JsNode>>();
+        List<Boolean> found = new ArrayList<Boolean>();
+        enter(root, path, children, found, collector);
+        while (!path.isEmpty()) {
+            int last = path.size() - 1;
+            List<JsNode> pending = children.get(last);
+            if (!pending.isEmpty()) {
+                JsNode child = pending.remove(pending.size() - 1);
+                if (child == changed) {
+                    found.set(last, true);
+                }
+                else {
+                    enter(child, path, children, found, collector);
+                }
+                continue;
+            }
+
+            JsNode node = path.remove(last);
+            children.remove(last);
+            if (found.remove(last)) {
+                hashes.remove(node);
+                if (last > 0) {
+                    found.set(last - 1, true);
+                }
+            }
+        }
+        hashes.remove(changed);
+    }
+
+    private static void enter(JsNode node, List<JsNode> path, List<List<JsNode>> children, List<Boolean> found,
+            ChildCollector collector) {
+        path.add(node);
+        children.add(collector.collect(node));
+        found.add(false);
+    }
+
+    private static final class ChildCollector extends JsVisitor {
+        private List<JsNode> children;
+
+        List<JsNode> collect(JsNode node) {
+            children = new ArrayList<JsNode>();
+            node.acceptChildren(this);
+            return children;
+        }
+
+        @Override
+        public <T extends JsNode> void accept(T node) {
+            children.add(node);
+        }
+    }
+
+    public void clear() {
+        hashes.clear();
+    }
+
+    /**
+     * Number of cached subtrees.
+     */
+    public int size() {
+        return hashes.size();
+    }
+}
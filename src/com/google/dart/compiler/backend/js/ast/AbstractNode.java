@@ -1,13 +1,10 @@
 package com.google.dart.compiler.backend.js.ast;
 
-import com.google.dart.compiler.backend.js.JsToStringGenerationVisitor;
-import com.google.dart.compiler.util.TextOutputImpl;
+import com.google.dart.compiler.backend.js.JsDebugStringGenerationVisitor;
 
 abstract class AbstractNode implements JsNode {
     @Override
     public String toString() {
-        TextOutputImpl out = new TextOutputImpl();
-        new JsToStringGenerationVisitor(out).accept(this);
-        return out.toString();
+        return JsDebugStringGenerationVisitor.toDebugString(this);
     }
-}
\ No newline at end of file
+}
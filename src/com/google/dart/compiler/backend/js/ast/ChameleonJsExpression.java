@@ -24,6 +24,16 @@ public class ChameleonJsExpression implements JsExpression {
         expression.acceptChildren(visitor);
     }
 
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        expression.traverse(v, ctx);
+    }
+
+    @Override
+    public int getPrecedence() {
+        return expression.getPrecedence();
+    }
+
     @Override
     public Object getSource() {
         return expression.getSource();
@@ -0,0 +1,314 @@
+package com.google.dart.compiler.backend.js.ast;
+
+import com.google.dart.compiler.util.NameTable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scope that can be shared by threads generating code in parallel, e.g. the global scope of function bodies generated concurrently.
+ * <p/>
+ * Names are declared without locking, fresh names are allocated with a counter per suggested name. Names are unique, but which
+ * thread gets which name depends on timing. When the same identifiers as in a sequential run are required, create the scope
+ * in deterministic mode and give each unit of work (in the order of the sequential run) its own view, see {@link #forTask(int)}.
+ * <p/>
+ * Scopes created by {@link #innerScope()} are not concurrent, they are expected to be used by one thread.
+ */
+public class ConcurrentJsScope extends JsScope {
+    // fresh names of task views contain a char that can't be in an identifier, so they never clash with declared names
+    private static final char PROVISIONAL_NAME_SEPARATOR = '#';
+
+    private final Set<String> names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentMap<String, AtomicInteger> counters = new ConcurrentHashMap<String, AtomicInteger>();
+    private final AtomicInteger temporaryIndex = new AtomicInteger();
+
+    // deterministic mode only
+    private final ConcurrentMap<Integer, TaskScope> tasks;
+
+    public ConcurrentJsScope(@Nullable JsScope parent) {
+        this(parent, false);
+    }
+
+    /**
+     * @param deterministic if true, names declared through {@link #forTask(int)} views are assigned in the order of task indices
+     * by {@link #resolveNames(JsNode)}
+     */
+    public ConcurrentJsScope(@Nullable JsScope parent, boolean deterministic) {
+        super(parent);
+        tasks = deterministic ? new ConcurrentHashMap<Integer, TaskScope>() : null;
+    }
+
+    public boolean isDeterministic() {
+        return tasks != null;
+    }
+
+    @Override
+    public String declareName(String identifier) {
+        names.add(identifier);
+        return identifier;
+    }
+
+    @NotNull
+    @Override
+    public String declareFreshName(String suggestedName) {
+        if (names.add(suggestedName)) {
+            return suggestedName;
+        }
+
+        AtomicInteger counter = counters.get(suggestedName);
+        if (counter == null) {
+            AtomicInteger newCounter = new AtomicInteger();
+            counter = counters.putIfAbsent(suggestedName, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+
+        // names are never removed, so a skipped counter value stays taken and the result is the first free name
+        // (as JsScope gives) if there is no concurrent declaration
+        while (true) {
+            String name = suggestedName + '_' + counter.getAndIncrement();
+            if (names.add(name)) {
+                return name;
+            }
+        }
+    }
+
+    @Override
+    public String declareTemporary() {
+        return declareFreshName("tmp$" + temporaryIndex.getAndIncrement());
+    }
+
+    @Nullable
+    @Override
+    protected String findOwnName(String ident) {
+        return names.contains(ident) ? ident : null;
+    }
+
+    @Override
+    protected String doCreateName(String name) {
+        return declareName(name);
+    }
+
+    /**
+     * Returns a view of this scope for the task with the given index. Tasks are numbered from 0 in the order of the sequential run
+     * and may run in any order.
+     * <p/>
+     * A view doesn't change this scope, it records its declarations. Fresh names and temporaries it returns are provisional:
+     * they are unique, but not valid identifiers, until {@link #resolveNames(JsNode)} assigns the names a sequential run would give.
+     * A view finds names declared in this scope before the parallel phase and names its own task declared by {@link TaskScope#declareName},
+     * not the ones of other tasks.
+     * <p/>
+     * During the parallel phase all access to this scope must go through the views.
+     */
+    @NotNull
+    public TaskScope forTask(int index) {
+        if (!isDeterministic()) {
+            throw new IllegalStateException("Scope is not deterministic");
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("Task index must be >= 0: " + index);
+        }
+        TaskScope task = new TaskScope(index);
+        if (tasks.putIfAbsent(index, task) != null) {
+            throw new IllegalStateException("View for task " + index + " is already created");
+        }
+        return task;
+    }
+
+    /**
+     * Declares names of all the {@link TaskScope#complete() completed} tasks in the order of their indices and replaces provisional
+     * names in the given tree (generated by the tasks) by the declared ones. Names of labels are not replaced, a label can't have
+     * a provisional name.
+     * <p/>
+     * Must be called by one thread after the parallel phase, views can't be used after it.
+     */
+    public void resolveNames(@NotNull JsNode root) {
+        if (!isDeterministic()) {
+            throw new IllegalStateException("Scope is not deterministic");
+        }
+
+        List<TaskScope> completed = new ArrayList<TaskScope>(tasks.values());
+        Collections.sort(completed, new Comparator<TaskScope>() {
+            @Override
+            public int compare(TaskScope o1, TaskScope o2) {
+                return o1.index < o2.index ? -1 : o1.index == o2.index ? 0 : 1;
+            }
+        });
+
+        for (TaskScope task : completed) {
+            if (!task.completed) {
+                throw new IllegalStateException("Task " + task.index + " is not completed");
+            }
+        }
+        tasks.clear();
+
+        Map<String, String> resolved = new HashMap<String, String>();
+        for (TaskScope task : completed) {
+            task.replay(resolved);
+        }
+        if (!resolved.isEmpty()) {
+            new ProvisionalNameReplacer(resolved).accept(root);
+        }
+    }
+
+    private static final class Declaration {
+        // declared or suggested name, null for a temporary
+        final String name;
+        // null if the name is declared as is
+        final String provisionalName;
+
+        Declaration(@Nullable String name, @Nullable String provisionalName) {
+            this.name = name;
+            this.provisionalName = provisionalName;
+        }
+    }
+
+    public final class TaskScope extends JsScope {
+        private final int index;
+        // names declared by this task
+        private final NameTable ownNames = new NameTable();
+        private final List<Declaration> declarations = new ArrayList<Declaration>();
+        private int provisionalNameCount;
+        private volatile boolean completed;
+
+        private TaskScope(int index) {
+            super(ConcurrentJsScope.this);
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public String declareName(String identifier) {
+            checkNotCompleted();
+            if (ownNames.add(identifier)) {
+                declarations.add(new Declaration(identifier, null));
+            }
+            return identifier;
+        }
+
+        @NotNull
+        @Override
+        public String declareFreshName(String suggestedName) {
+            checkNotCompleted();
+            String name = createProvisionalName();
+            declarations.add(new Declaration(suggestedName, name));
+            return name;
+        }
+
+        @Override
+        public String declareTemporary() {
+            checkNotCompleted();
+            String name = createProvisionalName();
+            declarations.add(new Declaration(null, name));
+            return name;
+        }
+
+        @Nullable
+        @Override
+        protected String findOwnName(String ident) {
+            return ownNames.get(ident);
+        }
+
+        @Override
+        protected String doCreateName(String name) {
+            return declareName(name);
+        }
+
+        private String createProvisionalName() {
+            return "" + PROVISIONAL_NAME_SEPARATOR + index + PROVISIONAL_NAME_SEPARATOR + provisionalNameCount++;
+        }
+
+        private void checkNotCompleted() {
+            if (completed) {
+                throw new IllegalStateException("Task " + index + " is completed");
+            }
+        }
+
+        private void replay(Map<String, String> resolved) {
+            for (Declaration declaration : declarations) {
+                if (declaration.provisionalName == null) {
+                    ConcurrentJsScope.this.declareName(declaration.name);
+                }
+                else if (declaration.name == null) {
+                    resolved.put(declaration.provisionalName, ConcurrentJsScope.this.declareTemporary());
+                }
+                else {
+                    resolved.put(declaration.provisionalName, ConcurrentJsScope.this.declareFreshName(declaration.name));
+                }
+            }
+        }
+
+        /**
+         * Marks the task as done, its declarations are then applied by {@link #resolveNames(JsNode)}. Must be called even if the task failed.
+         */
+        public void complete() {
+            completed = true;
+        }
+    }
+
+    private static final class ProvisionalNameReplacer extends RecursiveJsVisitor {
+        private final Map<String, String> resolved;
+
+        private ProvisionalNameReplacer(Map<String, String> resolved) {
+            super(true);
+            this.resolved = resolved;
+        }
+
+        @Nullable
+        private String resolve(@Nullable String name) {
+            return name == null ? null : resolved.get(name);
+        }
+
+        @Override
+        public void visitNameRef(JsNameRef nameRef) {
+            String name = resolve(nameRef.getName());
+            if (name != null) {
+                nameRef.setName(name);
+            }
+            super.visitNameRef(nameRef);
+        }
+
+        @Override
+        public void visitParameter(JsParameter x) {
+            String name = resolve(x.getName());
+            if (name != null) {
+                x.setName(name);
+            }
+        }
+
+        @Override
+        public void visit(JsVar x) {
+            String name = resolve(x.getName());
+            if (name != null) {
+                x.setName(name);
+            }
+            super.visit(x);
+        }
+
+        @Override
+        public void visitFunction(JsFunction x) {
+            String name = resolve(x.getName());
+            if (name != null) {
+                x.setName(name);
+            }
+            super.visitFunction(x);
+        }
+
+        @Override
+        public void visitForIn(JsForIn x) {
+            String name = resolve(x.getIterVarName());
+            if (name != null) {
+                x.setIterVarName(name);
+            }
+            super.visitForIn(x);
+        }
+    }
+}
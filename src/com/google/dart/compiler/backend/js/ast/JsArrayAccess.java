@@ -36,6 +36,11 @@ public final class JsArrayAccess extends JsExpressionImpl {
         this.indexExpression = indexExpression;
     }
 
+    @Override
+    public int getPrecedence() {
+        return PRECEDENCE_MEMBER;
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitArrayAccess(this);
@@ -46,4 +51,9 @@ public final class JsArrayAccess extends JsExpressionImpl {
         visitor.accept(arrayExpression);
         visitor.accept(indexExpression);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.traverseChain(this, ctx);
+    }
 }
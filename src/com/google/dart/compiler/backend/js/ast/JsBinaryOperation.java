@@ -29,10 +29,23 @@ public final class JsBinaryOperation extends JsExpressionImpl {
         return arg2;
     }
 
+    public void setArg1(JsExpression arg1) {
+        this.arg1 = arg1;
+    }
+
+    public void setArg2(JsExpression arg2) {
+        this.arg2 = arg2;
+    }
+
     public JsBinaryOperator getOperator() {
         return op;
     }
 
+    @Override
+    public int getPrecedence() {
+        return op.getPrecedence();
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitBinaryExpression(this);
@@ -48,4 +61,9 @@ public final class JsBinaryOperation extends JsExpressionImpl {
         }
         visitor.accept(arg2);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.traverseChain(this, ctx);
+    }
 }
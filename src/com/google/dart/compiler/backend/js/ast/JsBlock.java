@@ -4,9 +4,10 @@
 
 package com.google.dart.compiler.backend.js.ast;
 
+import com.intellij.util.SmartList;
+
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 public class JsBlock extends JsStatement {
@@ -17,11 +18,11 @@ public class JsBlock extends JsStatement {
     }
 
     public JsBlock(JsNode statement) {
-        this(Collections.singletonList(statement));
+        this(new SmartList<JsNode>(statement));
     }
 
     public JsBlock(JsNode... nodes) {
-        this(Arrays.asList(nodes));
+        this(new ArrayList<JsNode>(Arrays.asList(nodes)));
     }
 
     public JsBlock(List<JsNode> nodes) {
@@ -49,4 +50,12 @@ public class JsBlock extends JsStatement {
     public void acceptChildren(JsVisitor visitor) {
         visitor.acceptList(nodes);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            v.acceptList(nodes);
+        }
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
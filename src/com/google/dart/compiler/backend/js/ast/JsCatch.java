@@ -49,4 +49,14 @@ public class JsCatch extends SourceInfoAwareJsNode implements HasCondition {
         }
         visitor.accept(body);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            v.accept(param);
+            condition = v.acceptOptional(condition);
+            body = v.accept(body);
+        }
+        v.endVisit(this, ctx);
+    }
 }
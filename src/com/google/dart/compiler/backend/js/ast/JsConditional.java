@@ -42,6 +42,11 @@ public final class JsConditional extends JsExpressionImpl {
         this.thenExpression = thenExpression;
     }
 
+    @Override
+    public int getPrecedence() {
+        return PRECEDENCE_CONDITIONAL;
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitConditional(this);
@@ -53,4 +58,14 @@ public final class JsConditional extends JsExpressionImpl {
         visitor.accept(thenExpression);
         visitor.accept(elseExpression);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            testExpression = v.accept(testExpression);
+            thenExpression = v.accept(thenExpression);
+            elseExpression = v.accept(elseExpression);
+        }
+        v.endVisit(this, ctx);
+    }
 }
@@ -17,4 +17,10 @@ public class JsDebugger extends JsStatement {
     public void acceptChildren(JsVisitor visitor) {
 
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.visit(this, ctx);
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
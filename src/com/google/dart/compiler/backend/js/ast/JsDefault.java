@@ -9,4 +9,12 @@ public final class JsDefault extends JsSwitchMember {
     public void accept(JsVisitor v) {
         v.visitDefault(this);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            v.acceptList(statements);
+        }
+        v.endVisit(this, ctx);
+    }
 }
@@ -27,8 +27,19 @@ public class JsDocComment extends JsStatement implements JsExpression {
         v.visitDocComment(this);
     }
 
+    @Override
+    public int getPrecedence() {
+        throw new IllegalStateException("Only expressions have precedence.");
+    }
+
     @Override
     public JsDocComment source(Object info) {
         throw new IllegalStateException();
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.visit(this, ctx);
+        v.endVisit(this, ctx);
+    }
 }
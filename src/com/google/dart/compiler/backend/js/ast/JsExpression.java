@@ -1,6 +1,32 @@
 package com.google.dart.compiler.backend.js.ast;
 
 public interface JsExpression extends JsNode {
+    /*
+     * Precedence indices from "JavaScript - The Definitive Guide" 4th Edition (page 57),
+     * see also JsBinaryOperator and JsUnaryOperator.
+     */
+
+    /**
+     * Indivisible primaries that either don't have children, or provide their own delimiters.
+     */
+    int PRECEDENCE_PRIMARY = 17;
+
+    /**
+     * Really important things that have their own AST classes: member access and invocation.
+     */
+    int PRECEDENCE_MEMBER = 16;
+
+    int PRECEDENCE_NEW = 15;
+
+    int PRECEDENCE_CONDITIONAL = 3;
+
+    /**
+     * Precedence of the expression, used to decide whether it must be parenthesized inside of its parent.
+     * Precedence 14 is for unary operators, 12 through 4 are for non-assigning binary operators,
+     * 2 is for assignments and 1 is for comma operations.
+     */
+    int getPrecedence();
+
     @Override
     JsExpression source(Object info);
 }
@@ -66,7 +66,19 @@ public class JsFor extends JsStatement {
         return initVars;
     }
 
-    public void setBody(JsStatement body) {
+    public void setCondition(JsExpression condition) {
+        this.condition = condition;
+    }
+
+    public void setIncrementExpression(JsExpression incrementExpression) {
+        this.incrementExpression = incrementExpression;
+    }
+
+    public void setInitExpression(JsExpression initExpression) {
+        this.initExpression = initExpression;
+    }
+
+    public void setBody(JsNode body) {
         this.body = body;
     }
 
@@ -95,4 +107,20 @@ public class JsFor extends JsStatement {
         }
         visitor.accept(body);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            if (initExpression != null) {
+                initExpression = v.acceptOptional(initExpression);
+            }
+            else if (initVars != null) {
+                initVars = v.acceptOptional(initVars);
+            }
+            condition = v.acceptOptional(condition);
+            incrementExpression = v.acceptOptional(incrementExpression);
+            body = v.acceptStatement(body);
+        }
+        v.endVisit(this, ctx);
+    }
 }
@@ -10,7 +10,7 @@ public class JsForIn extends JsStatement {
     private JsExpression objectExpression;
 
     // Optional: the name of a new iterator variable to introduce
-    private final String iterVarName;
+    private String iterVarName;
 
     public JsForIn() {
         this(null);
@@ -36,6 +36,10 @@ public class JsForIn extends JsStatement {
         return objectExpression;
     }
 
+    public void setIterVarName(String iterVarName) {
+        this.iterVarName = iterVarName;
+    }
+
     public void setBody(JsStatement body) {
         this.body = body;
     }
@@ -61,4 +65,16 @@ public class JsForIn extends JsStatement {
         visitor.accept(objectExpression);
         visitor.accept(body);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            if (iterExpression != null) {
+                iterExpression = v.acceptLvalue(iterExpression);
+            }
+            objectExpression = v.accept(objectExpression);
+            body = v.acceptStatement(body);
+        }
+        v.endVisit(this, ctx);
+    }
 }
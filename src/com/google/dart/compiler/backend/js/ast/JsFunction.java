@@ -75,4 +75,13 @@ public final class JsFunction extends JsLiteral implements HasName {
         }
         visitor.accept(body);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            v.acceptList(parameters);
+            body = v.accept(body);
+        }
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
@@ -60,4 +60,14 @@ public final class JsIf extends JsStatement {
             visitor.accept(_else);
         }
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            _if = v.accept(_if);
+            then = v.acceptStatement(then);
+            _else = v.acceptOptional(_else);
+        }
+        v.endVisit(this, ctx);
+    }
 }
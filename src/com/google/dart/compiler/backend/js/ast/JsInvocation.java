@@ -8,7 +8,6 @@ import com.intellij.util.SmartList;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 public final class JsInvocation extends JsExpressionImpl.JsExpressionHasArguments {
@@ -25,7 +24,7 @@ public final class JsInvocation extends JsExpressionImpl.JsExpressionHasArgument
     }
 
     public JsInvocation(JsExpression qualifier, JsExpression arg) {
-        this(qualifier, Collections.singletonList(arg));
+        this(qualifier, new SmartList<JsExpression>(arg));
     }
 
     public JsInvocation(JsExpression qualifier, JsExpression... arguments) {
@@ -51,6 +50,11 @@ public final class JsInvocation extends JsExpressionImpl.JsExpressionHasArgument
         this.qualifier = qualifier;
     }
 
+    @Override
+    public int getPrecedence() {
+        return PRECEDENCE_MEMBER;
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitInvocation(this);
@@ -63,4 +67,9 @@ public final class JsInvocation extends JsExpressionImpl.JsExpressionHasArgument
         }
         visitor.acceptList(arguments);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.traverseChain(this, ctx);
+    }
 }
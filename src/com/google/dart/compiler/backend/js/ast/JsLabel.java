@@ -40,4 +40,12 @@ public class JsLabel extends JsStatement implements HasName {
     public void acceptChildren(JsVisitor visitor) {
         visitor.accept(statement);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            statement = v.acceptStatement(statement);
+        }
+        v.endVisit(this, ctx);
+    }
 }
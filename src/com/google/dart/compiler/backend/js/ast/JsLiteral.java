@@ -17,6 +17,11 @@ public abstract class JsLiteral extends JsExpressionImpl {
         return truth ? TRUE : FALSE;
     }
 
+    @Override
+    public int getPrecedence() {
+        return PRECEDENCE_PRIMARY;
+    }
+
     public static final class JsThisRef extends JsLiteral {
         private JsThisRef() {
         }
@@ -25,6 +30,12 @@ public abstract class JsLiteral extends JsExpressionImpl {
         public void accept(JsVisitor v) {
             v.visitThis(this);
         }
+
+        @Override
+        public void traverse(JsVisitorWithContext v, JsContext ctx) {
+            v.visit(this, ctx);
+            v.endVisit(this, ctx);
+        }
     }
 
     public static final class JsBooleanLiteral extends JsLiteral {
@@ -42,5 +53,11 @@ public abstract class JsLiteral extends JsExpressionImpl {
       public void accept(JsVisitor v) {
         v.visitBoolean(this);
       }
+
+      @Override
+      public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.visit(this, ctx);
+        v.endVisit(this, ctx);
+      }
     }
 }
\ No newline at end of file
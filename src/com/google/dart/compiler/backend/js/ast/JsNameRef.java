@@ -44,6 +44,12 @@ public final class JsNameRef extends JsExpressionImpl implements HasName {
         this.qualifier = qualifier;
     }
 
+    @Override
+    public int getPrecedence() {
+        // property access if qualified
+        return qualifier == null ? PRECEDENCE_PRIMARY : PRECEDENCE_MEMBER;
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitNameRef(this);
@@ -55,4 +61,9 @@ public final class JsNameRef extends JsExpressionImpl implements HasName {
            visitor.accept(qualifier);
         }
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.traverseChain(this, ctx);
+    }
 }
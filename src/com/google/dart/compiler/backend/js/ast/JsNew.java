@@ -24,6 +24,11 @@ public final class JsNew extends JsExpressionImpl.JsExpressionHasArguments {
         return constructorExpression;
     }
 
+    @Override
+    public int getPrecedence() {
+        return PRECEDENCE_NEW;
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitNew(this);
@@ -34,4 +39,13 @@ public final class JsNew extends JsExpressionImpl.JsExpressionHasArguments {
         visitor.accept(constructorExpression);
         visitor.acceptList(arguments);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            constructorExpression = v.accept(constructorExpression);
+            v.acceptList(arguments);
+        }
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
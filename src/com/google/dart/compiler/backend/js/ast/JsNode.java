@@ -14,6 +14,12 @@ public interface JsNode {
 
     void acceptChildren(JsVisitor visitor);
 
+    /**
+     * Causes the visitor to visit this node and its children, the context allows the visitor to replace, remove
+     * or insert nodes in the place of this node.
+     */
+    void traverse(JsVisitorWithContext visitor, JsContext ctx);
+
     /**
      * Return the source info associated with this object.
      */
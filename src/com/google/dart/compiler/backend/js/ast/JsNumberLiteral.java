@@ -5,6 +5,8 @@ public class JsNumberLiteral extends JsLiteral {
     public static final JsNumberLiteral V_M1 = new JsNumberLiteral(-1);
 
     private final Number value;
+    // fits in the padding of the object, doesn't make it bigger
+    private boolean shared;
 
     public JsNumberLiteral(Number value) {
         this.value = value;
@@ -14,6 +16,26 @@ public class JsNumberLiteral extends JsLiteral {
         return value;
     }
 
+    /**
+     * Marks the literal as used in several places, see {@link com.google.dart.compiler.backend.js.JsLeafFactory}.
+     * Its source can't be set after that, a use that needs a source gets a copy.
+     */
+    public void markShared() {
+        shared = true;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    @Override
+    public void setSource(Object info) {
+        if (shared) {
+            throw new UnsupportedOperationException("Source of a shared literal can't be set: " + this);
+        }
+        super.setSource(info);
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitNumber(this);
@@ -22,4 +44,10 @@ public class JsNumberLiteral extends JsLiteral {
     public String toString() {
         return String.valueOf(value);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.visit(this, ctx);
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
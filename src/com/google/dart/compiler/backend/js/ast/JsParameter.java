@@ -5,7 +5,7 @@
 package com.google.dart.compiler.backend.js.ast;
 
 public final class JsParameter extends SourceInfoAwareJsNode implements HasName {
-    private final String name;
+    private String name;
 
     public JsParameter(String name) {
         this.name = name;
@@ -16,8 +16,18 @@ public final class JsParameter extends SourceInfoAwareJsNode implements HasName
         return name;
     }
 
+    public void setName(String name) {
+        this.name = name;
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitParameter(this);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.visit(this, ctx);
+        v.endVisit(this, ctx);
+    }
 }
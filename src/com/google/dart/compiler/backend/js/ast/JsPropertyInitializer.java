@@ -11,7 +11,7 @@ import org.jetbrains.annotations.Nullable;
  * Used in object literals to specify property values by name.
  */
 public class JsPropertyInitializer extends SourceInfoAwareJsNode {
-    private final JsExpression labelExpr;
+    private JsExpression labelExpr;
     private final String label;
     private JsExpression valueExpr;
 
@@ -60,4 +60,15 @@ public class JsPropertyInitializer extends SourceInfoAwareJsNode {
         }
         visitor.accept(valueExpr);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            if (labelExpr != null) {
+                labelExpr = v.accept(labelExpr);
+            }
+            valueExpr = v.accept(valueExpr);
+        }
+        v.endVisit(this, ctx);
+    }
 }
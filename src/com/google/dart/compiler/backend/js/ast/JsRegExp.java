@@ -31,4 +31,10 @@ public final class JsRegExp extends JsLiteral {
     public void accept(JsVisitor v) {
         v.visitRegExp(this);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.visit(this, ctx);
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
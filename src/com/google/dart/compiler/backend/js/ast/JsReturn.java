@@ -36,4 +36,12 @@ public final class JsReturn extends JsStatement {
             visitor.accept(expression);
         }
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            expression = v.acceptOptional(expression);
+        }
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
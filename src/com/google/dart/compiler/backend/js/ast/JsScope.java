@@ -4,13 +4,10 @@
 
 package com.google.dart.compiler.backend.js.ast;
 
-import com.google.dart.compiler.util.Maps;
+import com.google.dart.compiler.util.NameTable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
-import java.util.Map;
-
 /**
  * A scope is a factory for creating and allocating
  * {@link String}s. A JavaScript AST is
@@ -35,7 +32,7 @@ import java.util.Map;
  * hierarchy.
  */
 public class JsScope {
-    private Map<String, String> names = Collections.emptyMap();
+    private final NameTable names = new NameTable();
     private final JsScope parent;
     protected int tempIndex = 0;
 
@@ -62,7 +59,7 @@ public class JsScope {
      * @param identifier An identifier that is unique within this scope.
      */
     public String declareName(String identifier) {
-        String name = names.get(identifier);
+        String name = findOwnName(identifier);
         return name != null ? name : doCreateName(identifier);
     }
 
@@ -74,12 +71,7 @@ public class JsScope {
      */
     @NotNull
     public String declareFreshName(String suggestedName) {
-        String name = suggestedName;
-        int counter = 0;
-        while (names.containsKey(name)) {
-            name = suggestedName + '_' + counter++;
-        }
-        return doCreateName(name);
+        return doCreateName(names.getFreshName(suggestedName));
     }
 
     /**
@@ -100,15 +92,23 @@ public class JsScope {
      */
     @Nullable
     public final String findName(String ident) {
-        String name = names.get(ident);
+        String name = findOwnName(ident);
         if (name == null && parent != null) {
             return parent.findName(ident);
         }
         return name;
     }
 
+    /**
+     * Finds the identifier in this scope only.
+     */
+    @Nullable
+    protected String findOwnName(String ident) {
+        return names.get(ident);
+    }
+
     protected String doCreateName(String name) {
-        names = Maps.put(names, name, name);
+        names.add(name);
         return name;
     }
 }
\ No newline at end of file
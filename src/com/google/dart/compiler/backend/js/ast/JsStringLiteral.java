@@ -10,6 +10,8 @@ public class JsStringLiteral extends JsLiteral {
 
     private final CharSequence value;
     private final char quote;
+    // fits in the padding of the object, doesn't make it bigger
+    private boolean shared;
 
     public JsStringLiteral(CharSequence value) {
         this.value = value;
@@ -37,8 +39,34 @@ public class JsStringLiteral extends JsLiteral {
         return quote == UNESCAPED;
     }
 
+    /**
+     * Marks the literal as used in several places, see {@link com.google.dart.compiler.backend.js.JsLeafFactory}.
+     * Its source can't be set after that, a use that needs a source gets a copy.
+     */
+    public void markShared() {
+        shared = true;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    @Override
+    public void setSource(Object info) {
+        if (shared) {
+            throw new UnsupportedOperationException("Source of a shared literal can't be set: " + this);
+        }
+        super.setSource(info);
+    }
+
     @Override
     public void accept(JsVisitor v) {
         v.visitString(this);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        v.visit(this, ctx);
+        v.endVisit(this, ctx);
+    }
 }
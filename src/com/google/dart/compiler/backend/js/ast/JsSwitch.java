@@ -41,4 +41,13 @@ public class JsSwitch extends JsStatement {
         visitor.accept(expression);
         visitor.acceptList(cases);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            expression = v.accept(expression);
+            v.acceptList(cases);
+        }
+        v.endVisit(this, ctx);
+    }
 }
@@ -60,4 +60,14 @@ public class JsTry extends JsStatement {
            visitor.accept(finallyBlock);
         }
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            tryBlock = v.accept(tryBlock);
+            v.acceptList(catches);
+            finallyBlock = v.acceptOptional(finallyBlock);
+        }
+        v.endVisit(this, ctx);
+    }
 }
@@ -32,6 +32,15 @@ public abstract class JsUnaryOperation extends JsExpressionImpl {
         this.arg = arg;
     }
 
+    @Override
+    public int getPrecedence() {
+        return op.getPrecedence();
+    }
+
+    protected void traverseArg(JsVisitorWithContext v) {
+        arg = op.isModifying() ? v.acceptLvalue(arg) : v.accept(arg);
+    }
+
     @Override
     public void acceptChildren(JsVisitor visitor) {
         if (op.isModifying()) {
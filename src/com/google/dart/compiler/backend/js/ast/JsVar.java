@@ -3,7 +3,7 @@ package com.google.dart.compiler.backend.js.ast;
 import org.jetbrains.annotations.Nullable;
 
 public class JsVar extends JsStatement implements HasName {
-    private final String name;
+    private String name;
     private JsExpression initExpression;
 
     public JsVar(String name) {
@@ -24,6 +24,10 @@ public class JsVar extends JsStatement implements HasName {
         return name;
     }
 
+    public void setName(String name) {
+        this.name = name;
+    }
+
     public void setInitExpression(JsExpression initExpression) {
         this.initExpression = initExpression;
     }
@@ -39,4 +43,12 @@ public class JsVar extends JsStatement implements HasName {
             visitor.accept(initExpression);
         }
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            initExpression = v.acceptOptional(initExpression);
+        }
+        v.endVisit(this, ctx);
+    }
 }
@@ -71,4 +71,12 @@ public class JsVars extends JsStatement {
     public void acceptChildren(JsVisitor visitor) {
         visitor.acceptList(vars);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            v.acceptList(vars);
+        }
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
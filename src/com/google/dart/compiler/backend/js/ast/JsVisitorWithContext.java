@@ -0,0 +1,612 @@
+package com.google.dart.compiler.backend.js.ast;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visitor that can modify the tree in place: each visited node gets a {@link JsContext} to replace or remove the node,
+ * or, if the node is an element of a list (statements of a block, arguments, etc.), to insert nodes before or after it.
+ * <p/>
+ * {@code visit(x, ctx)} is called before the children of {@code x} are visited (they are skipped if it returns false),
+ * {@code endVisit(x, ctx)} after them. Replacing and inserted nodes are not visited, nodes inserted after a node
+ * follow it in the order of insertion. Removing a node from a slot that requires a statement (e.g. a loop body)
+ * leaves an empty block there.
+ * <p/>
+ * Edits of a list are applied after all its elements are visited, so any number of them takes one pass over the list
+ * instead of shifting the tail of the list on each edit. Lists that are edited must be mutable.
+ * <p/>
+ * Chains of binary operations (through the left operand), name references, invocations and array accesses
+ * (through the qualifier) are traversed in a loop, so long concatenations and call chains don't overflow the stack.
+ * The order of calls is the same as in a recursive traversal.
+ */
+public abstract class JsVisitorWithContext {
+    // chain nodes whose first child is being traversed and their contexts
+    private final List<JsExpression> chain = new ArrayList<JsExpression>();
+    private final List<JsContext> chainContexts = new ArrayList<JsContext>();
+    @Nullable
+    public <T extends JsNode> T accept(@Nullable T node) {
+        return node == null ? null : doAccept(node, false, false);
+    }
+
+    /**
+     * Accepts a node of a slot that may be empty (e.g. else branch or return value), the result is null if the node is removed.
+     */
+    @Nullable
+    public <T extends JsNode> T acceptOptional(@Nullable T node) {
+        return node == null ? null : doAccept(node, true, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends JsNode> T acceptStatement(T statement) {
+        T result = doAccept(statement, true, false);
+        return result == null ? (T) new JsBlock() : result;
+    }
+
+    public JsExpression acceptLvalue(JsExpression expression) {
+        return doAccept(expression, false, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends JsNode> void acceptList(List<T> nodes) {
+        if (!nodes.isEmpty()) {
+            new ListContext((List<JsNode>) nodes).traverse();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends JsNode> T doAccept(T node, boolean removable, boolean lvalue) {
+        NodeContext ctx = new NodeContext(node, removable, lvalue);
+        node.traverse(this, ctx);
+        return ctx.removed ? null : (T) ctx.node;
+    }
+
+    /**
+     * Traverses a chain node: the node is visited, then its first child (the left operand, the qualifier or the array
+     * expression), then the rest of its children, the loop goes down the chain while the first child is a chain node.
+     */
+    void traverseChain(JsExpression node, JsContext ctx) {
+        int start = chain.size();
+        while (true) {
+            if (!visitChainNode(node, ctx)) {
+                endVisitChainNode(node, ctx);
+                break;
+            }
+
+            JsExpression child = getFirstChild(node);
+            boolean removable = !(node instanceof JsBinaryOperation || node instanceof JsArrayAccess);
+            boolean lvalue = node instanceof JsBinaryOperation && ((JsBinaryOperation) node).getOperator().isAssignment();
+            if (!isChainNode(child)) {
+                setFirstChild(node, child == null ? null : doAccept(child, removable, lvalue));
+                acceptOtherChildren(node);
+                endVisitChainNode(node, ctx);
+                break;
+            }
+
+            chain.add(node);
+            chainContexts.add(ctx);
+            node = child;
+            ctx = new NodeContext(child, removable, lvalue);
+        }
+
+        for (int i = chain.size() - 1; i >= start; i--) {
+            NodeContext childContext = (NodeContext) ctx;
+            node = chain.remove(i);
+            ctx = chainContexts.remove(i);
+            setFirstChild(node, childContext.removed ? null : (JsExpression) childContext.node);
+            acceptOtherChildren(node);
+            endVisitChainNode(node, ctx);
+        }
+    }
+
+    private static boolean isChainNode(@Nullable JsExpression node) {
+        return node instanceof JsBinaryOperation || node instanceof JsNameRef || node instanceof JsInvocation ||
+               node instanceof JsArrayAccess;
+    }
+
+    @Nullable
+    private static JsExpression getFirstChild(JsExpression node) {
+        if (node instanceof JsBinaryOperation) {
+            return ((JsBinaryOperation) node).getArg1();
+        }
+        if (node instanceof JsNameRef) {
+            return ((JsNameRef) node).getQualifier();
+        }
+        if (node instanceof JsInvocation) {
+            return ((JsInvocation) node).getQualifier();
+        }
+        return ((JsArrayAccess) node).getArrayExpression();
+    }
+
+    private static void setFirstChild(JsExpression node, @Nullable JsExpression child) {
+        if (node instanceof JsBinaryOperation) {
+            ((JsBinaryOperation) node).setArg1(child);
+        }
+        else if (node instanceof JsNameRef) {
+            ((JsNameRef) node).setQualifier(child);
+        }
+        else if (node instanceof JsInvocation) {
+            ((JsInvocation) node).setQualifier(child);
+        }
+        else {
+            ((JsArrayAccess) node).setArrayExpression(child);
+        }
+    }
+
+    private void acceptOtherChildren(JsExpression node) {
+        if (node instanceof JsBinaryOperation) {
+            JsBinaryOperation operation = (JsBinaryOperation) node;
+            operation.setArg2(accept(operation.getArg2()));
+        }
+        else if (node instanceof JsInvocation) {
+            acceptList(((JsInvocation) node).getArguments());
+        }
+        else if (node instanceof JsArrayAccess) {
+            JsArrayAccess arrayAccess = (JsArrayAccess) node;
+            arrayAccess.setIndexExpression(accept(arrayAccess.getIndexExpression()));
+        }
+    }
+
+    private boolean visitChainNode(JsExpression node, JsContext ctx) {
+        if (node instanceof JsBinaryOperation) {
+            return visit((JsBinaryOperation) node, ctx);
+        }
+        if (node instanceof JsNameRef) {
+            return visit((JsNameRef) node, ctx);
+        }
+        if (node instanceof JsInvocation) {
+            return visit((JsInvocation) node, ctx);
+        }
+        return visit((JsArrayAccess) node, ctx);
+    }
+
+    private void endVisitChainNode(JsExpression node, JsContext ctx) {
+        if (node instanceof JsBinaryOperation) {
+            endVisit((JsBinaryOperation) node, ctx);
+        }
+        else if (node instanceof JsNameRef) {
+            endVisit((JsNameRef) node, ctx);
+        }
+        else if (node instanceof JsInvocation) {
+            endVisit((JsInvocation) node, ctx);
+        }
+        else {
+            endVisit((JsArrayAccess) node, ctx);
+        }
+    }
+
+    private static final class NodeContext implements JsContext {
+        private final boolean removable;
+        private final boolean lvalue;
+
+        private JsNode node;
+        private boolean removed;
+
+        NodeContext(JsNode node, boolean removable, boolean lvalue) {
+            this.node = node;
+            this.removable = removable;
+            this.lvalue = lvalue;
+        }
+
+        @Override
+        public boolean canInsert() {
+            return false;
+        }
+
+        @Override
+        public boolean canRemove() {
+            return removable;
+        }
+
+        @Override
+        public void insertAfter(JsNode node) {
+            throw new UnsupportedOperationException("Can't insert a node into a single node slot");
+        }
+
+        @Override
+        public void insertBefore(JsNode node) {
+            throw new UnsupportedOperationException("Can't insert a node into a single node slot");
+        }
+
+        @Override
+        public boolean isLvalue() {
+            return lvalue;
+        }
+
+        @Override
+        public void removeMe() {
+            if (!removable) {
+                throw new UnsupportedOperationException("Node can't be removed: " + node);
+            }
+            removed = true;
+        }
+
+        @Override
+        public void replaceMe(JsNode node) {
+            this.node = node;
+            removed = false;
+        }
+    }
+
+    private final class ListContext implements JsContext {
+        private final List<JsNode> list;
+        private int index;
+
+        // edits of the current element
+        private JsNode replacement;
+        private boolean removed;
+        private List<JsNode> insertedAfter;
+
+        // list with edits applied, created by the first insertion or removal, contains elements before the current one
+        private List<JsNode> edited;
+
+        ListContext(List<JsNode> list) {
+            this.list = list;
+        }
+
+        void traverse() {
+            for (int n = list.size(); index < n; index++) {
+                JsNode node = list.get(index);
+                node.traverse(JsVisitorWithContext.this, this);
+                applyEdits(node);
+            }
+
+            if (edited != null) {
+                list.clear();
+                list.addAll(edited);
+            }
+        }
+
+        private void applyEdits(JsNode node) {
+            JsNode result = removed ? null : replacement != null ? replacement : node;
+            if (edited == null) {
+                // not removed, nothing inserted
+                if (result != node) {
+                    list.set(index, result);
+                }
+            }
+            else {
+                if (result != null) {
+                    edited.add(result);
+                }
+                if (insertedAfter != null && !insertedAfter.isEmpty()) {
+                    edited.addAll(insertedAfter);
+                    insertedAfter.clear();
+                }
+            }
+
+            replacement = null;
+            removed = false;
+        }
+
+        private List<JsNode> getEdited() {
+            if (edited == null) {
+                edited = new ArrayList<JsNode>(list.size() + 8);
+                edited.addAll(list.subList(0, index));
+            }
+            return edited;
+        }
+
+        @Override
+        public boolean canInsert() {
+            return true;
+        }
+
+        @Override
+        public boolean canRemove() {
+            return true;
+        }
+
+        @Override
+        public void insertAfter(JsNode node) {
+            getEdited();
+            if (insertedAfter == null) {
+                insertedAfter = new ArrayList<JsNode>();
+            }
+            insertedAfter.add(node);
+        }
+
+        @Override
+        public void insertBefore(JsNode node) {
+            getEdited().add(node);
+        }
+
+        @Override
+        public boolean isLvalue() {
+            return false;
+        }
+
+        @Override
+        public void removeMe() {
+            getEdited();
+            removed = true;
+        }
+
+        @Override
+        public void replaceMe(JsNode node) {
+            replacement = node;
+            removed = false;
+        }
+    }
+
+    public boolean visit(JsArrayAccess x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsArrayLiteral x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsBinaryOperation x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsBlock x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsLiteral.JsBooleanLiteral x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsBreak x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsCase x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsCatch x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsConditional x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsContinue x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsDebugger x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsDefault x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsDocComment x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsDoWhile x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsEmpty x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsFor x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsForIn x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsFunction x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsIf x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsInvocation x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsLabel x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsNameRef x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsNew x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsNullLiteral x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsNumberLiteral x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsObjectLiteral x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsParameter x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsPostfixOperation x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsPrefixOperation x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsPropertyInitializer x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsRegExp x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsReturn x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsStringLiteral x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsSwitch x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsLiteral.JsThisRef x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsThrow x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsTry x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsVar x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsVars x, JsContext ctx) {
+        return true;
+    }
+
+    public boolean visit(JsWhile x, JsContext ctx) {
+        return true;
+    }
+
+    public void endVisit(JsArrayAccess x, JsContext ctx) {
+    }
+
+    public void endVisit(JsArrayLiteral x, JsContext ctx) {
+    }
+
+    public void endVisit(JsBinaryOperation x, JsContext ctx) {
+    }
+
+    public void endVisit(JsBlock x, JsContext ctx) {
+    }
+
+    public void endVisit(JsLiteral.JsBooleanLiteral x, JsContext ctx) {
+    }
+
+    public void endVisit(JsBreak x, JsContext ctx) {
+    }
+
+    public void endVisit(JsCase x, JsContext ctx) {
+    }
+
+    public void endVisit(JsCatch x, JsContext ctx) {
+    }
+
+    public void endVisit(JsConditional x, JsContext ctx) {
+    }
+
+    public void endVisit(JsContinue x, JsContext ctx) {
+    }
+
+    public void endVisit(JsDebugger x, JsContext ctx) {
+    }
+
+    public void endVisit(JsDefault x, JsContext ctx) {
+    }
+
+    public void endVisit(JsDocComment x, JsContext ctx) {
+    }
+
+    public void endVisit(JsDoWhile x, JsContext ctx) {
+    }
+
+    public void endVisit(JsEmpty x, JsContext ctx) {
+    }
+
+    public void endVisit(JsFor x, JsContext ctx) {
+    }
+
+    public void endVisit(JsForIn x, JsContext ctx) {
+    }
+
+    public void endVisit(JsFunction x, JsContext ctx) {
+    }
+
+    public void endVisit(JsIf x, JsContext ctx) {
+    }
+
+    public void endVisit(JsInvocation x, JsContext ctx) {
+    }
+
+    public void endVisit(JsLabel x, JsContext ctx) {
+    }
+
+    public void endVisit(JsNameRef x, JsContext ctx) {
+    }
+
+    public void endVisit(JsNew x, JsContext ctx) {
+    }
+
+    public void endVisit(JsNullLiteral x, JsContext ctx) {
+    }
+
+    public void endVisit(JsNumberLiteral x, JsContext ctx) {
+    }
+
+    public void endVisit(JsObjectLiteral x, JsContext ctx) {
+    }
+
+    public void endVisit(JsParameter x, JsContext ctx) {
+    }
+
+    public void endVisit(JsPostfixOperation x, JsContext ctx) {
+    }
+
+    public void endVisit(JsPrefixOperation x, JsContext ctx) {
+    }
+
+    public void endVisit(JsPropertyInitializer x, JsContext ctx) {
+    }
+
+    public void endVisit(JsRegExp x, JsContext ctx) {
+    }
+
+    public void endVisit(JsReturn x, JsContext ctx) {
+    }
+
+    public void endVisit(JsStringLiteral x, JsContext ctx) {
+    }
+
+    public void endVisit(JsSwitch x, JsContext ctx) {
+    }
+
+    public void endVisit(JsLiteral.JsThisRef x, JsContext ctx) {
+    }
+
+    public void endVisit(JsThrow x, JsContext ctx) {
+    }
+
+    public void endVisit(JsTry x, JsContext ctx) {
+    }
+
+    public void endVisit(JsVar x, JsContext ctx) {
+    }
+
+    public void endVisit(JsVars x, JsContext ctx) {
+    }
+
+    public void endVisit(JsWhile x, JsContext ctx) {
+    }
+}
@@ -42,4 +42,13 @@ public class JsWhile extends JsStatement {
         visitor.accept(condition);
         visitor.accept(body);
     }
+
+    @Override
+    public void traverse(JsVisitorWithContext v, JsContext ctx) {
+        if (v.visit(this, ctx)) {
+            condition = v.accept(condition);
+            body = v.acceptStatement(body);
+        }
+        v.endVisit(this, ctx);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,76 @@
 package com.google.dart.compiler.backend.js.ast;
 
+import java.util.ArrayList;
+
 public abstract class RecursiveJsVisitor extends JsVisitor {
+    // not null in iterative mode
+    private final ArrayList<JsNode> stack;
+    private boolean draining;
+
+    protected RecursiveJsVisitor() {
+        this(false);
+    }
+
+    /**
+     * @param iterative if true, nodes are visited using an explicit stack instead of the Java one, so arbitrarily deep trees
+     * can be traversed. Nodes are still visited in pre-order, but {@link #accept} calls made from a visit method
+     * (including ones made by {@link JsNode#acceptChildren}) are deferred until that visit method returns,
+     * so code after {@code super.visitXxx(x)} runs before the children of {@code x} are visited.
+     */
+    protected RecursiveJsVisitor(boolean iterative) {
+        stack = iterative ? new ArrayList<JsNode>() : null;
+    }
+
+    @Override
+    public <T extends JsNode> void accept(T node) {
+        if (stack == null) {
+            node.accept(this);
+        }
+        else if (draining) {
+            stack.add(node);
+        }
+        else {
+            drain(node);
+        }
+    }
+
+    /**
+     * Visits the node and its descendants before returning, in iterative mode too. Use it for a subtree that is visited
+     * in a different state of the visitor (like a function body in its own scope), the Java stack then grows
+     * with nesting of such subtrees only.
+     */
+    protected final void acceptNow(JsNode node) {
+        if (stack == null) {
+            node.accept(this);
+        }
+        else {
+            drain(node);
+        }
+    }
+
+    private void drain(JsNode root) {
+        // nodes below the base are pushed by an outer drain
+        int base = stack.size();
+        boolean wasDraining = draining;
+        draining = true;
+        try {
+            stack.add(root);
+            int size;
+            while ((size = stack.size()) > base) {
+                JsNode node = stack.remove(size - 1);
+                node.accept(this);
+                // children were pushed in visiting order, reverse them so the first one is on top
+                for (int i = size - 1, j = stack.size() - 1; i < j; i++, j--) {
+                    stack.set(j, stack.set(i, stack.get(j)));
+                }
+            }
+        }
+        finally {
+            stack.subList(base, stack.size()).clear();
+            draining = wasDraining;
+        }
+    }
+
     @Override
     protected void visitElement(JsNode node) {
         node.acceptChildren(this);
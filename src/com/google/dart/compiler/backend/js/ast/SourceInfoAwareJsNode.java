@@ -19,7 +19,7 @@ abstract class SourceInfoAwareJsNode extends AbstractNode {
 
     @Override
     public JsNode source(Object info) {
-        source = info;
+        setSource(info);
         return this;
     }
 }
\ No newline at end of file
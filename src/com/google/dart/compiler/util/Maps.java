@@ -13,7 +13,10 @@ import java.util.Map;
  * Utility methods for operating on memory-efficient maps. All maps of size 0 or
  * 1 are assumed to be immutable. All maps of size greater than 1 are assumed to
  * be mutable.
+ *
+ * @deprecated not used since scope names are kept in {@link NameTable}, will be removed in a future version.
  */
+@Deprecated
 public class Maps {
     private Maps() {
     }
@@ -0,0 +1,226 @@
+package com.google.dart.compiler.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Set of names with open addressing (linear probing), used by {@link com.google.dart.compiler.backend.js.ast.JsScope}.
+ * <p/>
+ * For each suggested name that was already taken, the table remembers the counter of the last fresh name allocated for it,
+ * so the next {@link #getFreshName} doesn't probe all the taken {@code suggestedName_N} again.
+ * Candidates are hashed and compared without building a string, only the returned name is allocated.
+ * Names are never removed, so a counter that was taken once stays taken.
+ */
+public final class NameTable {
+    private static final int INITIAL_CAPACITY = 8;
+
+    // null until the first name is added, most scopes are empty
+    private String[] names;
+    private int[] hashes;
+    private int size;
+
+    // suggested name -> counter of the last fresh name allocated for it
+    private String[] prefixes;
+    private int[] counters;
+    private int prefixCount;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(@NotNull String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * Returns the instance of the name added to the table, or null if there is no such name.
+     */
+    @Nullable
+    public String get(@NotNull String name) {
+        if (names == null) {
+            return null;
+        }
+        int index = indexOf(names, hashes, name, name.hashCode());
+        return index < 0 ? null : names[index];
+    }
+
+    /**
+     * @return false if the name is already in the table
+     */
+    public boolean add(@NotNull String name) {
+        ensureCapacity();
+        int hash = name.hashCode();
+        int index = indexOf(names, hashes, name, hash);
+        if (index >= 0) {
+            return false;
+        }
+        insert(-index - 1, name, hash);
+        return true;
+    }
+
+    /**
+     * Returns the first of {@code suggestedName}, {@code suggestedName_0}, {@code suggestedName_1}, ... that isn't in the table.
+     * The name is not added.
+     */
+    @NotNull
+    public String getFreshName(@NotNull String suggestedName) {
+        if (!contains(suggestedName)) {
+            return suggestedName;
+        }
+
+        int counter = getCounter(suggestedName);
+        int prefixHash = 31 * suggestedName.hashCode() + '_';
+        while (indexOfCandidate(suggestedName, counter, candidateHash(prefixHash, counter)) >= 0) {
+            counter++;
+        }
+        setCounter(suggestedName, counter);
+        return suggestedName + '_' + counter;
+    }
+
+    private void ensureCapacity() {
+        if (names == null) {
+            names = new String[INITIAL_CAPACITY];
+            hashes = new int[INITIAL_CAPACITY];
+        }
+        else if ((size + 1) << 1 > names.length) {
+            String[] oldNames = names;
+            int[] oldHashes = hashes;
+            names = new String[oldNames.length << 1];
+            hashes = new int[oldNames.length << 1];
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] != null) {
+                    int index = indexOf(names, hashes, oldNames[i], oldHashes[i]);
+                    names[-index - 1] = oldNames[i];
+                    hashes[-index - 1] = oldHashes[i];
+                }
+            }
+        }
+    }
+
+    private void insert(int index, String name, int hash) {
+        names[index] = name;
+        hashes[index] = hash;
+        size++;
+    }
+
+    /**
+     * @return index of the name, or -(index of the free slot) - 1 if there is no such name
+     */
+    private static int indexOf(String[] names, int[] hashes, String name, int hash) {
+        int mask = names.length - 1;
+        int index = spread(hash) & mask;
+        String key;
+        while ((key = names[index]) != null) {
+            if (hashes[index] == hash && key.equals(name)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -index - 1;
+    }
+
+    private int indexOfCandidate(String prefix, int counter, int hash) {
+        int mask = names.length - 1;
+        int index = spread(hash) & mask;
+        String key;
+        while ((key = names[index]) != null) {
+            if (hashes[index] == hash && isCandidate(key, prefix, counter)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -index - 1;
+    }
+
+    /**
+     * Same as {@code (prefix + '_' + counter).hashCode()}, given {@code prefixHash} of {@code prefix + '_'}.
+     */
+    private static int candidateHash(int prefixHash, int counter) {
+        int hash = prefixHash;
+        for (int divisor = getMaxDivisor(counter); divisor > 0; divisor /= 10) {
+            hash = 31 * hash + ('0' + counter / divisor % 10);
+        }
+        return hash;
+    }
+
+    private static boolean isCandidate(String name, String prefix, int counter) {
+        int prefixLength = prefix.length();
+        int digitsStart = prefixLength + 1;
+        int digitCount = 1;
+        for (int divisor = getMaxDivisor(counter); divisor >= 10; divisor /= 10) {
+            digitCount++;
+        }
+
+        if (name.length() != digitsStart + digitCount || name.charAt(prefixLength) != '_' || !name.startsWith(prefix)) {
+            return false;
+        }
+        for (int i = name.length() - 1; i >= digitsStart; i--) {
+            if (name.charAt(i) != '0' + counter % 10) {
+                return false;
+            }
+            counter /= 10;
+        }
+        return true;
+    }
+
+    private static int getMaxDivisor(int value) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        return divisor;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private int getCounter(String prefix) {
+        if (prefixes == null) {
+            return 0;
+        }
+        int index = indexOfPrefix(prefix);
+        return index < 0 ? 0 : counters[index];
+    }
+
+    private void setCounter(String prefix, int counter) {
+        if (prefixes == null) {
+            prefixes = new String[INITIAL_CAPACITY];
+            counters = new int[INITIAL_CAPACITY];
+        }
+        else if ((prefixCount + 1) << 1 > prefixes.length) {
+            String[] oldPrefixes = prefixes;
+            int[] oldCounters = counters;
+            prefixes = new String[oldPrefixes.length << 1];
+            counters = new int[oldPrefixes.length << 1];
+            for (int i = 0; i < oldPrefixes.length; i++) {
+                if (oldPrefixes[i] != null) {
+                    int index = -indexOfPrefix(oldPrefixes[i]) - 1;
+                    prefixes[index] = oldPrefixes[i];
+                    counters[index] = oldCounters[i];
+                }
+            }
+        }
+
+        int index = indexOfPrefix(prefix);
+        if (index < 0) {
+            index = -index - 1;
+            prefixes[index] = prefix;
+            prefixCount++;
+        }
+        counters[index] = counter;
+    }
+
+    private int indexOfPrefix(String prefix) {
+        int mask = prefixes.length - 1;
+        int index = spread(prefix.hashCode()) & mask;
+        String key;
+        while ((key = prefixes[index]) != null) {
+            if (key.equals(prefix)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -index - 1;
+    }
+}
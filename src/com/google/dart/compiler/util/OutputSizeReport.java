@@ -0,0 +1,136 @@
+package com.google.dart.compiler.util;
+
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Size of printed code attributed to node types and to top-level functions.
+ * <p/>
+ * Size of a node type is the text printed by nodes of this type itself, excluding their children,
+ * so sizes of all node types add up to {@link #getTotalSize()}. Size of a function includes nested functions.
+ * Sizes are in chars, which is the same as bytes for ASCII output.
+ */
+public final class OutputSizeReport {
+    private final Map<Class<?>, Entry> nodeTypes = new THashMap<Class<?>, Entry>();
+    private final Map<String, Entry> functions = new THashMap<String, Entry>();
+    private int totalSize;
+
+    private static final class Entry {
+        int count;
+        int size;
+    }
+
+    private static final Comparator<Map.Entry<?, Entry>> BY_SIZE = new Comparator<Map.Entry<?, Entry>>() {
+        @Override
+        public int compare(Map.Entry<?, Entry> e1, Map.Entry<?, Entry> e2) {
+            int size1 = e1.getValue().size;
+            int size2 = e2.getValue().size;
+            return size1 < size2 ? 1 : (size1 == size2 ? 0 : -1);
+        }
+    };
+
+    public int getTotalSize() {
+        return totalSize;
+    }
+
+    public void addTotalSize(int size) {
+        totalSize += size;
+    }
+
+    public void addNode(@NotNull Class<?> nodeType, int size) {
+        add(nodeTypes, nodeType, 1, size);
+    }
+
+    public void addFunction(@NotNull String name, int size) {
+        add(functions, name, 1, size);
+    }
+
+    private static <K> void add(Map<K, Entry> map, K key, int count, int size) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            map.put(key, entry);
+        }
+        entry.count += count;
+        entry.size += size;
+    }
+
+    /**
+     * Adds node type and function sizes of the other report, total size is not changed.
+     */
+    public void merge(@NotNull OutputSizeReport other) {
+        for (Map.Entry<Class<?>, Entry> entry : other.nodeTypes.entrySet()) {
+            add(nodeTypes, entry.getKey(), entry.getValue().count, entry.getValue().size);
+        }
+        for (Map.Entry<String, Entry> entry : other.functions.entrySet()) {
+            add(functions, entry.getKey(), entry.getValue().count, entry.getValue().size);
+        }
+    }
+
+    public int getNodeTypeSize(@NotNull Class<?> nodeType) {
+        Entry entry = nodeTypes.get(nodeType);
+        return entry == null ? 0 : entry.size;
+    }
+
+    public int getFunctionSize(@NotNull String name) {
+        Entry entry = functions.get(name);
+        return entry == null ? 0 : entry.size;
+    }
+
+    public void reset() {
+        nodeTypes.clear();
+        functions.clear();
+        totalSize = 0;
+    }
+
+    /**
+     * Writes the report as JSON, node types and functions are sorted by size, largest first:
+     * <pre>
+     * {"totalSize":1000,
+     *  "nodeTypes":[{"name":"JsNameRef","count":100,"size":400}, ...],
+     *  "functions":[{"name":"foo.bar","count":1,"size":300}, ...]}
+     * </pre>
+     */
+    public void write(Appendable out) throws IOException {
+        out.append("{\"totalSize\":").append(Integer.toString(totalSize));
+        out.append(",\"nodeTypes\":[");
+        List<Map.Entry<Class<?>, Entry>> sortedNodeTypes = new ArrayList<Map.Entry<Class<?>, Entry>>(nodeTypes.entrySet());
+        Collections.sort(sortedNodeTypes, BY_SIZE);
+        for (int i = 0; i < sortedNodeTypes.size(); i++) {
+            writeEntry(out, i, sortedNodeTypes.get(i).getKey().getSimpleName(), sortedNodeTypes.get(i).getValue());
+        }
+        out.append("],\"functions\":[");
+        List<Map.Entry<String, Entry>> sortedFunctions = new ArrayList<Map.Entry<String, Entry>>(functions.entrySet());
+        Collections.sort(sortedFunctions, BY_SIZE);
+        for (int i = 0; i < sortedFunctions.size(); i++) {
+            writeEntry(out, i, sortedFunctions.get(i).getKey(), sortedFunctions.get(i).getValue());
+        }
+        out.append("]}");
+    }
+
+    private static void writeEntry(Appendable out, int index, String name, Entry entry) throws IOException {
+        if (index != 0) {
+            out.append(',');
+        }
+        out.append("{\"name\":");
+        SourceMapBuilder.appendJsonString(out, name);
+        out.append(",\"count\":").append(Integer.toString(entry.count));
+        out.append(",\"size\":").append(Integer.toString(entry.size));
+        out.append('}');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        try {
+            write(out);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,229 @@
+package com.google.dart.compiler.util;
+
+import com.google.dart.compiler.Source;
+import com.google.dart.compiler.common.SourceInfo;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects mappings from generated to original positions and writes them as a source map (revision 3).
+ * Mappings are kept in a flat int array and encoded only when the map is written, so recording a mapping doesn't allocate.
+ * <p/>
+ * Mappings must be added in order of generated position, all positions are 0-based. There is one mapping per generated
+ * position: if several nodes start at the same place, the last added one (the innermost node) replaces the others.
+ */
+public class SourceMapBuilder {
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // generated line, generated column, source index, source line, source column
+    private static final int SEGMENT_SIZE = 5;
+
+    private int[] segments = new int[SEGMENT_SIZE * 64];
+    private int size;
+
+    private final List<String> sources = new ArrayList<String>();
+    private final Map<String, Integer> sourceIndices = new THashMap<String, Integer>();
+
+    private Source lastSource;
+    private int lastSourceIndex = -1;
+
+    public int getMappingCount() {
+        return size / SEGMENT_SIZE;
+    }
+
+    public List<String> getSources() {
+        return sources;
+    }
+
+    public void reset() {
+        size = 0;
+        sources.clear();
+        sourceIndices.clear();
+        lastSource = null;
+        lastSourceIndex = -1;
+    }
+
+    /**
+     * Maps the generated position to the start of the given source info, does nothing if the source info has no position.
+     */
+    public void addMapping(int generatedLine, int generatedColumn, SourceInfo info) {
+        Source source = info.getSource();
+        if (source == null || info.getLine() < 1) {
+            return;
+        }
+
+        int sourceIndex;
+        if (source == lastSource) {
+            sourceIndex = lastSourceIndex;
+        }
+        else {
+            sourceIndex = getSourceIndex(source.getName());
+            lastSource = source;
+            lastSourceIndex = sourceIndex;
+        }
+        add(generatedLine, generatedColumn, sourceIndex, info.getLine() - 1, Math.max(info.getColumn() - 1, 0));
+    }
+
+    public void addMapping(int generatedLine, int generatedColumn, String sourceName, int sourceLine, int sourceColumn) {
+        add(generatedLine, generatedColumn, getSourceIndex(sourceName), sourceLine, sourceColumn);
+    }
+
+    /**
+     * Appends mappings of other builder, shifted as if its generated text started at the given position.
+     */
+    public void append(SourceMapBuilder other, int lineOffset, int columnOffset) {
+        int[] otherSegments = other.segments;
+        int[] indexMap = new int[other.sources.size()];
+        for (int i = 0; i < indexMap.length; i++) {
+            indexMap[i] = getSourceIndex(other.sources.get(i));
+        }
+
+        for (int i = 0; i < other.size; i += SEGMENT_SIZE) {
+            int line = otherSegments[i];
+            add(line + lineOffset, line == 0 ? otherSegments[i + 1] + columnOffset : otherSegments[i + 1],
+                indexMap[otherSegments[i + 2]], otherSegments[i + 3], otherSegments[i + 4]);
+        }
+    }
+
+    private int getSourceIndex(String name) {
+        Integer index = sourceIndices.get(name);
+        if (index == null) {
+            index = sources.size();
+            sources.add(name);
+            sourceIndices.put(name, index);
+        }
+        return index;
+    }
+
+    private void add(int generatedLine, int generatedColumn, int sourceIndex, int sourceLine, int sourceColumn) {
+        int offset = size;
+        if (offset > 0 && segments[offset - SEGMENT_SIZE] == generatedLine && segments[offset - SEGMENT_SIZE + 1] == generatedColumn) {
+            // several nodes start at the same position, the innermost (last) one is the most precise
+            offset -= SEGMENT_SIZE;
+        }
+        else if (offset == segments.length) {
+            int[] newSegments = new int[segments.length << 1];
+            System.arraycopy(segments, 0, newSegments, 0, size);
+            segments = newSegments;
+        }
+
+        segments[offset] = generatedLine;
+        segments[offset + 1] = generatedColumn;
+        segments[offset + 2] = sourceIndex;
+        segments[offset + 3] = sourceLine;
+        segments[offset + 4] = sourceColumn;
+        size = offset + SEGMENT_SIZE;
+    }
+
+    /**
+     * Writes the source map as JSON.
+     */
+    public void write(Appendable out, @Nullable String file) throws IOException {
+        out.append("{\"version\":3,");
+        if (file != null) {
+            out.append("\"file\":");
+            appendJsonString(out, file);
+            out.append(',');
+        }
+        out.append("\"sources\":[");
+        for (int i = 0; i < sources.size(); i++) {
+            if (i != 0) {
+                out.append(',');
+            }
+            appendJsonString(out, sources.get(i));
+        }
+        out.append("],\"names\":[],\"mappings\":\"");
+        writeMappings(out);
+        out.append("\"}");
+    }
+
+    public String build(@Nullable String file) {
+        StringBuilder out = new StringBuilder(size * 2);
+        try {
+            write(out, file);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the value of "mappings" field: base64 VLQ encoded segments, each one relative to the previous.
+     */
+    public void writeMappings(Appendable out) throws IOException {
+        int line = 0;
+        int previousColumn = 0;
+        int previousSourceIndex = 0;
+        int previousSourceLine = 0;
+        int previousSourceColumn = 0;
+        boolean firstInLine = true;
+        for (int i = 0; i < size; i += SEGMENT_SIZE) {
+            int generatedLine = segments[i];
+            while (line < generatedLine) {
+                out.append(';');
+                line++;
+                previousColumn = 0;
+                firstInLine = true;
+            }
+
+            if (firstInLine) {
+                firstInLine = false;
+            }
+            else {
+                out.append(',');
+            }
+
+            int column = segments[i + 1];
+            int sourceIndex = segments[i + 2];
+            int sourceLine = segments[i + 3];
+            int sourceColumn = segments[i + 4];
+            appendVlq(out, column - previousColumn);
+            appendVlq(out, sourceIndex - previousSourceIndex);
+            appendVlq(out, sourceLine - previousSourceLine);
+            appendVlq(out, sourceColumn - previousSourceColumn);
+            previousColumn = column;
+            previousSourceIndex = sourceIndex;
+            previousSourceLine = sourceLine;
+            previousSourceColumn = sourceColumn;
+        }
+    }
+
+    private static void appendVlq(Appendable out, int value) throws IOException {
+        int vlq = value < 0 ? ((-value) << 1) | 1 : value << 1;
+        do {
+            int digit = vlq & 31;
+            vlq >>>= 5;
+            if (vlq != 0) {
+                // continuation bit
+                digit |= 32;
+            }
+            out.append(BASE64[digit]);
+        }
+        while (vlq != 0);
+    }
+
+    static void appendJsonString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            }
+            else if (c < ' ') {
+                out.append("\\u00");
+                out.append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+            else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,85 @@
+package com.google.dart.compiler.util;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Text output that drains its buffer to a {@link Writer} in fixed-size chunks while printing,
+ * so the whole program is never held in memory. {@link #toString()} returns only the not yet flushed tail,
+ * call {@link #flush()} (or {@link #close()}) when printing is done.
+ */
+public class StreamingTextOutput extends TextOutputImpl implements Closeable, Flushable {
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Writer writer;
+    private final int chunkSize;
+    private char[] chunk;
+
+    public StreamingTextOutput(Writer writer) {
+        this(writer, false);
+    }
+
+    public StreamingTextOutput(Writer writer, boolean compact) {
+        this(writer, compact, DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamingTextOutput(Writer writer, boolean compact, int chunkSize) {
+        super(compact, new StringBuilder(chunkSize + (chunkSize >> 2)));
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be > 0");
+        }
+        this.writer = writer;
+        this.chunkSize = chunkSize;
+    }
+
+    public StreamingTextOutput(OutputStream out, boolean compact) {
+        this(new OutputStreamWriter(out, UTF_8), compact);
+    }
+
+    public StreamingTextOutput(WritableByteChannel channel, boolean compact) {
+        this(Channels.newWriter(channel, UTF_8.newEncoder(), DEFAULT_CHUNK_SIZE), compact);
+    }
+
+    @Override
+    protected void produced() {
+        if (getBuilder().length() >= chunkSize) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        StringBuilder out = getBuilder();
+        int length = out.length();
+        if (length == 0) {
+            return;
+        }
+
+        if (chunk == null || chunk.length < length) {
+            chunk = new char[Math.max(length, chunkSize)];
+        }
+        out.getChars(0, length, chunk, 0);
+        out.setLength(0);
+        try {
+            writer.write(chunk, 0, length);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        drain();
+        writer.close();
+    }
+}
@@ -7,10 +7,21 @@ package com.google.dart.compiler.util;
 import java.util.Arrays;
 
 public class TextOutputImpl implements TextOutput {
-    private final boolean compact;
-    private int identLevel = 0;
     private final static int indentGranularity = 2;
-    private char[][] indents = new char[][] {new char[0]};
+
+    // indentation strings of the first levels, shared by all outputs (arrays are never modified)
+    private static final char[][] SHARED_INDENTS = new char[16][];
+
+    static {
+        for (int level = 0; level < SHARED_INDENTS.length; level++) {
+            SHARED_INDENTS[level] = new char[level * indentGranularity];
+            Arrays.fill(SHARED_INDENTS[level], ' ');
+        }
+    }
+
+    private boolean compact;
+    private int identLevel = 0;
+    private char[][] indents = SHARED_INDENTS;
     private boolean justNewlined;
     private final StringBuilder out;
     private int position = 0;
@@ -28,8 +39,12 @@ public class TextOutputImpl implements TextOutput {
     }
 
     public TextOutputImpl(boolean compact) {
+        this(compact, new StringBuilder());
+    }
+
+    protected TextOutputImpl(boolean compact, StringBuilder out) {
         this.compact = compact;
-        out = new StringBuilder();
+        this.out = out;
     }
 
     @Override
@@ -37,6 +52,25 @@ public class TextOutputImpl implements TextOutput {
         return out.toString();
     }
 
+    /**
+     * Clears the output so it can be used for printing again, keeping the allocated builder.
+     * The out listener is removed.
+     */
+    public void reset() {
+        reset(compact);
+    }
+
+    public void reset(boolean compact) {
+        this.compact = compact;
+        out.setLength(0);
+        identLevel = 0;
+        justNewlined = false;
+        position = 0;
+        line = 0;
+        column = 0;
+        outListener = null;
+    }
+
     @Override
     public int getPosition() {
         return position;
@@ -81,6 +115,7 @@ public class TextOutputImpl implements TextOutput {
         if (outListener != null) {
             outListener.newLined();
         }
+        produced();
     }
 
     @Override
@@ -118,6 +153,7 @@ public class TextOutputImpl implements TextOutput {
     private void movePosition(int l) {
         position += l;
         column += l;
+        produced();
     }
 
     @Override
@@ -170,12 +206,14 @@ public class TextOutputImpl implements TextOutput {
         position += charSequence.length();
         column += charSequence.length();
         out.append(charSequence);
+        produced();
     }
 
     private void printAndCount(char[] chars) {
         position += chars.length;
         column += chars.length;
         out.append(chars);
+        produced();
     }
 
     @Override
@@ -187,6 +225,14 @@ public class TextOutputImpl implements TextOutput {
     public void builderProduced(int increment) {
         position += increment;
         column += increment;
+        produced();
+    }
+
+    /**
+     * Called after text has been appended to the builder. Subclasses may drain the builder here,
+     * position, line and column are tracked independently of its content.
+     */
+    protected void produced() {
     }
 
     @Override
@@ -0,0 +1,141 @@
+package com.google.dart.compiler.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded pool of {@link TextOutputImpl}s, so repeated printing reuses grown builders instead of allocating new ones.
+ * <p/>
+ * Released outputs are kept by size class (capacity of the builder rounded down to a power of two), at most
+ * {@code maxPerSizeClass} in each class and at most {@code maxRetainedChars} in total, the largest outputs are evicted first.
+ * Outputs larger than the largest size class are not kept. Thread-safe.
+ */
+public final class TextOutputPool {
+    private static final int MIN_CAPACITY_SHIFT = 10;
+    private static final int SIZE_CLASS_COUNT = 15;
+
+    private final int maxPerSizeClass;
+    private final long maxRetainedChars;
+
+    // size class i holds outputs with capacity in [2^(i + MIN_CAPACITY_SHIFT), 2^(i + MIN_CAPACITY_SHIFT + 1)),
+    // class 0 also smaller ones
+    private final List<ArrayDeque<TextOutputImpl>> sizeClasses;
+    private long retainedChars;
+    private int retainedCount;
+
+    public TextOutputPool(int maxPerSizeClass, long maxRetainedChars) {
+        if (maxPerSizeClass < 0 || maxRetainedChars < 0) {
+            throw new IllegalArgumentException("Pool limits must be >= 0");
+        }
+        this.maxPerSizeClass = maxPerSizeClass;
+        this.maxRetainedChars = maxRetainedChars;
+        sizeClasses = new ArrayList<ArrayDeque<TextOutputImpl>>(SIZE_CLASS_COUNT);
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            sizeClasses.add(new ArrayDeque<TextOutputImpl>());
+        }
+    }
+
+    @NotNull
+    public TextOutputImpl acquire(boolean compact) {
+        return acquire(compact, 0);
+    }
+
+    /**
+     * Returns a cleared output, taken from the pool if there is one with capacity of at least the expected length's size class.
+     */
+    @NotNull
+    public TextOutputImpl acquire(boolean compact, int expectedLength) {
+        synchronized (this) {
+            for (int i = getSizeClass(expectedLength); i < SIZE_CLASS_COUNT; i++) {
+                TextOutputImpl out = sizeClasses.get(i).pollFirst();
+                if (out != null) {
+                    retainedCount--;
+                    retainedChars -= out.getBuilder().capacity();
+                    out.reset(compact);
+                    return out;
+                }
+            }
+        }
+        return new TextOutputImpl(compact, new StringBuilder(Math.max(expectedLength, 1 << MIN_CAPACITY_SHIFT)));
+    }
+
+    /**
+     * Returns the output to the pool, it must not be used after that. Only plain {@link TextOutputImpl}s are accepted,
+     * subclasses may write elsewhere.
+     */
+    public void release(@NotNull TextOutputImpl out) {
+        if (out.getClass() != TextOutputImpl.class) {
+            throw new IllegalArgumentException("Only TextOutputImpl can be pooled: " + out.getClass());
+        }
+
+        int capacity = out.getBuilder().capacity();
+        // rounded down, so an output taken from a class has at least the capacity of the class
+        int sizeClass = Math.max(31 - Integer.numberOfLeadingZeros(capacity) - MIN_CAPACITY_SHIFT, 0);
+        if (sizeClass >= SIZE_CLASS_COUNT || capacity > maxRetainedChars) {
+            return;
+        }
+
+        out.reset();
+        synchronized (this) {
+            ArrayDeque<TextOutputImpl> outputs = sizeClasses.get(sizeClass);
+            if (outputs.size() >= maxPerSizeClass) {
+                if (maxPerSizeClass == 0) {
+                    return;
+                }
+                // keep the most recently used ones
+                evict(outputs);
+            }
+
+            int i = SIZE_CLASS_COUNT - 1;
+            while (retainedChars + capacity > maxRetainedChars) {
+                if (i < sizeClass) {
+                    // don't evict smaller outputs to keep a larger one
+                    return;
+                }
+                if (sizeClasses.get(i).isEmpty()) {
+                    i--;
+                }
+                else {
+                    evict(sizeClasses.get(i));
+                }
+            }
+
+            outputs.addFirst(out);
+            retainedChars += capacity;
+            retainedCount++;
+        }
+    }
+
+    private void evict(ArrayDeque<TextOutputImpl> outputs) {
+        retainedChars -= outputs.pollLast().getBuilder().capacity();
+        retainedCount--;
+    }
+
+    public synchronized int getRetainedCount() {
+        return retainedCount;
+    }
+
+    public synchronized long getRetainedChars() {
+        return retainedChars;
+    }
+
+    public synchronized void clear() {
+        for (ArrayDeque<TextOutputImpl> outputs : sizeClasses) {
+            outputs.clear();
+        }
+        retainedChars = 0;
+        retainedCount = 0;
+    }
+
+    // smallest class with capacity of at least the given length
+    private static int getSizeClass(int length) {
+        if (length <= 1 << MIN_CAPACITY_SHIFT) {
+            return 0;
+        }
+        int sizeClass = 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_CAPACITY_SHIFT;
+        return Math.min(sizeClass, SIZE_CLASS_COUNT - 1);
+    }
+}
@@ -0,0 +1,370 @@
+package com.google.dart.compiler.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Text output that encodes directly to UTF-8 into a reusable {@link ByteBuffer}, so the printed program
+ * doesn't have to be materialized as a String and encoded in a second pass.
+ * <p/>
+ * Position, line and column are counted in chars (as {@link TextOutputImpl} does), not in bytes.
+ */
+public class Utf8TextOutput implements TextOutput {
+    private static final byte[] SPACES = new byte[64];
+
+    static {
+        Arrays.fill(SPACES, (byte) ' ');
+    }
+
+    private final boolean compact;
+    private int identLevel = 0;
+    private final static int indentGranularity = 2;
+    private boolean justNewlined;
+    private ByteBuffer out;
+    private int position = 0;
+    private int line = 0;
+    private int column = 0;
+
+    // high surrogate printed as the last char of the previous call
+    private char pendingHighSurrogate;
+
+    // used by JsToStringGenerationVisitor for string escaping and for numbers, encoded and cleared by builderProduced
+    private final StringBuilder scratch = new StringBuilder();
+
+    private OutListener outListener;
+
+    public Utf8TextOutput() {
+        this(false);
+    }
+
+    public Utf8TextOutput(boolean compact) {
+        this(compact, 8192);
+    }
+
+    public Utf8TextOutput(boolean compact, int initialCapacity) {
+        this.compact = compact;
+        out = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Returns the encoded output, flipped for reading. The buffer is reused by the next {@link #reset()}.
+     */
+    public ByteBuffer getByteBuffer() {
+        flushPendingSurrogate();
+        ByteBuffer result = out.duplicate();
+        result.flip();
+        return result;
+    }
+
+    public byte[] toByteArray() {
+        flushPendingSurrogate();
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    public int getByteCount() {
+        flushPendingSurrogate();
+        return out.position();
+    }
+
+    public void writeTo(OutputStream stream) throws IOException {
+        flushPendingSurrogate();
+        stream.write(out.array(), 0, out.position());
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = getByteBuffer();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Clears the output and the listener, keeping the allocated buffer.
+     */
+    public void reset() {
+        out.clear();
+        identLevel = 0;
+        justNewlined = false;
+        position = 0;
+        line = 0;
+        column = 0;
+        pendingHighSurrogate = 0;
+        scratch.setLength(0);
+        outListener = null;
+    }
+
+    @Override
+    public String toString() {
+        flushPendingSurrogate();
+        try {
+            return new String(out.array(), 0, out.position(), "UTF-8");
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean isCompact() {
+        return compact;
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public void indentIn() {
+        ++identLevel;
+    }
+
+    @Override
+    public void indentOut() {
+        --identLevel;
+    }
+
+    @Override
+    public void newline() {
+        ensureCapacity(1);
+        out.put((byte) '\n');
+        position++;
+        line++;
+        column = 0;
+        justNewlined = true;
+        if (outListener != null) {
+            outListener.newLined();
+        }
+    }
+
+    @Override
+    public void printNumber(Number value) {
+        maybeIndent();
+        if (value instanceof Integer) {
+            scratch.append(value.intValue());
+        }
+        else if (value instanceof Float) {
+            scratch.append(value.floatValue());
+        }
+        else if (value instanceof Double) {
+            scratch.append(value.doubleValue());
+        }
+        else if (value instanceof Long) {
+            scratch.append(value.longValue());
+        }
+        else if (value instanceof Short) {
+            scratch.append(value.shortValue());
+        }
+        else if (value instanceof Byte) {
+            scratch.append(value.byteValue());
+        }
+        builderProduced(scratch.length());
+    }
+
+    @Override
+    public void print(char c) {
+        maybeIndent();
+        ensureCapacity(3);
+        encode(c);
+        movePosition(1);
+    }
+
+    @Override
+    public void print(char[] s) {
+        maybeIndent();
+        printAndCount(s);
+    }
+
+    @Override
+    public void print(CharSequence s) {
+        maybeIndent();
+        printAndCount(s);
+    }
+
+    @Override
+    public void printOpt(char c) {
+        if (!compact) {
+            print(c);
+        }
+    }
+
+    @Override
+    public void printOpt(char[] s) {
+        if (!compact) {
+            maybeIndent();
+            printAndCount(s);
+        }
+    }
+
+    @Override
+    public void printOpt(String s) {
+        if (!compact) {
+            maybeIndent();
+            printAndCount(s);
+        }
+    }
+
+    @Override
+    public void maybeIndent() {
+        if (justNewlined && !compact) {
+            int count = identLevel * indentGranularity;
+            ensureCapacity(count);
+            while (count > 0) {
+                int n = Math.min(count, SPACES.length);
+                out.put(SPACES, 0, n);
+                count -= n;
+            }
+            movePosition(identLevel * indentGranularity);
+            justNewlined = false;
+            if (outListener != null) {
+                outListener.indentedAfterNewLine();
+            }
+        }
+    }
+
+    private void movePosition(int l) {
+        position += l;
+        column += l;
+    }
+
+    private void printAndCount(CharSequence s) {
+        int length = s.length();
+        ensureCapacity(length * 3);
+        byte[] array = out.array();
+        int offset = out.position();
+        int i = 0;
+        if (pendingHighSurrogate == 0) {
+            // fast path for ASCII, covers keywords, punctuation and most identifiers
+            for (; i < length; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                array[offset++] = (byte) c;
+            }
+            out.position(offset);
+        }
+        for (; i < length; i++) {
+            encode(s.charAt(i));
+        }
+        movePosition(length);
+    }
+
+    private void printAndCount(char[] chars) {
+        int length = chars.length;
+        ensureCapacity(length * 3);
+        byte[] array = out.array();
+        int offset = out.position();
+        int i = 0;
+        if (pendingHighSurrogate == 0) {
+            for (; i < length; i++) {
+                char c = chars[i];
+                if (c >= 0x80) {
+                    break;
+                }
+                array[offset++] = (byte) c;
+            }
+            out.position(offset);
+        }
+        for (; i < length; i++) {
+            encode(chars[i]);
+        }
+        movePosition(length);
+    }
+
+    /**
+     * Caller must ensure capacity for 3 more bytes (4 if a high surrogate is pending).
+     */
+    private void encode(char c) {
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+                return;
+            }
+            // unpaired surrogate, encoded as '?' like String.getBytes does
+            out.put((byte) '?');
+        }
+
+        if (c < 0x80) {
+            out.put((byte) c);
+        }
+        else if (c < 0x800) {
+            out.put((byte) (0xC0 | (c >> 6)));
+            out.put((byte) (0x80 | (c & 0x3F)));
+        }
+        else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        }
+        else if (Character.isLowSurrogate(c)) {
+            out.put((byte) '?');
+        }
+        else {
+            out.put((byte) (0xE0 | (c >> 12)));
+            out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            out.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    // text ending with a high surrogate is complete when the output is read, the surrogate is unpaired
+    private void flushPendingSurrogate() {
+        if (pendingHighSurrogate != 0) {
+            ensureCapacity(1);
+            pendingHighSurrogate = 0;
+            out.put((byte) '?');
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        // one more surrogate half may be pending
+        extra += 1;
+        if (out.remaining() < extra) {
+            int newCapacity = Math.max(out.capacity() << 1, out.position() + extra);
+            ByteBuffer newOut = ByteBuffer.allocate(newCapacity);
+            out.flip();
+            newOut.put(out);
+            out = newOut;
+        }
+    }
+
+    @Override
+    public StringBuilder getBuilder() {
+        return scratch;
+    }
+
+    @Override
+    public void builderProduced(int increment) {
+        // scratch is cleared after each use, so increment is always its whole length
+        assert increment == scratch.length();
+        printAndCount(scratch);
+        scratch.setLength(0);
+    }
+
+    @Override
+    public boolean isJustNewlined() {
+        return justNewlined && !compact;
+    }
+
+    @Override
+    public void setOutListener(OutListener outListener) {
+        this.outListener = outListener;
+    }
+}
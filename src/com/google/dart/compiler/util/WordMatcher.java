@@ -0,0 +1,145 @@
+package com.google.dart.compiler.util;
+
+import gnu.trove.THashSet;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Immutable set of words compiled to a char trie, bucketed by word length.
+ * <p/>
+ * A lookup rejects most non-members by length or first char with one array access, then walks the trie comparing chars,
+ * the word isn't hashed and doesn't have to be a String.
+ */
+public final class WordMatcher {
+    private static final int FIRST_CHAR_TABLE_SIZE = 128;
+
+    // [length * FIRST_CHAR_TABLE_SIZE + first char] -> node after the first char, 0 if there is no such word
+    private final int[] firstCharNodes;
+    private final int maxLength;
+
+    // children of node i are edgeChars/edgeNodes[childStart[i]..childStart[i + 1]), sorted by char
+    private final int[] childStart;
+    private final char[] edgeChars;
+    private final int[] edgeNodes;
+    // non-ASCII first chars
+    private final Set<String> otherWords;
+
+    public WordMatcher(@NotNull Collection<String> words) {
+        int maxLength = 0;
+        List<String> asciiWords = new ArrayList<String>(words.size());
+        otherWords = new THashSet<String>();
+        for (String word : words) {
+            if (word.isEmpty() || word.charAt(0) >= FIRST_CHAR_TABLE_SIZE) {
+                otherWords.add(word);
+            }
+            else {
+                asciiWords.add(word);
+                maxLength = Math.max(maxLength, word.length());
+            }
+        }
+        this.maxLength = maxLength;
+
+        // build a pointer trie keyed by (length, first char), then flatten it breadth-first
+        Collections.sort(asciiWords);
+        TreeMap<Integer, Node> roots = new TreeMap<Integer, Node>();
+        for (String word : asciiWords) {
+            int key = word.length() * FIRST_CHAR_TABLE_SIZE + word.charAt(0);
+            Node node = roots.get(key);
+            if (node == null) {
+                node = new Node();
+                roots.put(key, node);
+            }
+            for (int i = 1; i < word.length(); i++) {
+                node = node.child(word.charAt(i));
+            }
+        }
+
+        List<Node> nodes = new ArrayList<Node>();
+        // node 0 is reserved as "no node"
+        nodes.add(new Node());
+        firstCharNodes = new int[(maxLength + 1) * FIRST_CHAR_TABLE_SIZE];
+        for (Map.Entry<Integer, Node> entry : roots.entrySet()) {
+            firstCharNodes[entry.getKey()] = nodes.size();
+            nodes.add(entry.getValue());
+        }
+        int edgeCount = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            node.index = i;
+            nodes.addAll(node.children.values());
+            edgeCount += node.children.size();
+        }
+
+        childStart = new int[nodes.size() + 1];
+        edgeChars = new char[edgeCount];
+        edgeNodes = new int[edgeCount];
+        int edge = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            childStart[i] = edge;
+            for (Map.Entry<Character, Node> entry : nodes.get(i).children.entrySet()) {
+                edgeChars[edge] = entry.getKey();
+                edgeNodes[edge] = entry.getValue().index;
+                edge++;
+            }
+        }
+        childStart[nodes.size()] = edge;
+    }
+
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+        int index;
+
+        Node child(char c) {
+            Node node = children.get(c);
+            if (node == null) {
+                node = new Node();
+                children.put(c, node);
+            }
+            return node;
+        }
+    }
+
+    public boolean matches(@NotNull CharSequence word) {
+        int length = word.length();
+        if (length == 0 || length > maxLength) {
+            return !otherWords.isEmpty() && otherWords.contains(word.toString());
+        }
+        char first = word.charAt(0);
+        if (first >= FIRST_CHAR_TABLE_SIZE) {
+            return !otherWords.isEmpty() && otherWords.contains(word.toString());
+        }
+
+        int node = firstCharNodes[length * FIRST_CHAR_TABLE_SIZE + first];
+        for (int i = 1; i < length && node != 0; i++) {
+            node = findChild(node, word.charAt(i));
+        }
+        // every path of the length bucket ends with a word
+        return node != 0;
+    }
+
+    public boolean matches(@NotNull char[] chars, int offset, int length) {
+        if (length == 0 || length > maxLength || chars[offset] >= FIRST_CHAR_TABLE_SIZE) {
+            return !otherWords.isEmpty() && otherWords.contains(new String(chars, offset, length));
+        }
+
+        int node = firstCharNodes[length * FIRST_CHAR_TABLE_SIZE + chars[offset]];
+        for (int i = 1; i < length && node != 0; i++) {
+            node = findChild(node, chars[offset + i]);
+        }
+        return node != 0;
+    }
+
+    private int findChild(int node, char c) {
+        for (int edge = childStart[node], end = childStart[node + 1]; edge < end; edge++) {
+            char edgeChar = edgeChars[edge];
+            if (edgeChar == c) {
+                return edgeNodes[edge];
+            }
+            if (edgeChar > c) {
+                break;
+            }
+        }
+        return 0;
+    }
+}